@@ -4,9 +4,12 @@ import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import uk.ac.ebi.subs.messaging.Queues;
+import uk.ac.ebi.subs.processing.initialsubmissionprocessing.SubmissionSubmittedPipeline;
+import uk.ac.ebi.subs.processing.initialsubmissionprocessing.SubmittedPipelineProperties;
 
 /**
  * This configuration class responsible for the RabbitMQ configuration for the API support operations.
@@ -26,13 +29,17 @@ public class ApiSupportQueueConfig {
     }
 
     /**
-     * Queue for documents within a submission to have their status updated owhen the user submits the submission
+     * Queue for documents within a submission to have their status updated owhen the user submits the submission,
+     * only declared when the {@link SubmissionSubmittedPipeline} is disabled
      * @return
      */
-    @Bean Queue onSubmitMarkSubmittablesQueue() {return Queues.buildQueueWithDlx(Queues.SUBMISSION_SUBMITTED_MARK_SUBMITTABLES); }
+    @Bean
+    @ConditionalOnProperty(name = SubmittedPipelineProperties.ENABLED_PROPERTY, havingValue = "false", matchIfMissing = true)
+    Queue onSubmitMarkSubmittablesQueue() {return Queues.buildQueueWithDlx(Queues.SUBMISSION_SUBMITTED_MARK_SUBMITTABLES); }
 
 
     @Bean
+    @ConditionalOnProperty(name = SubmittedPipelineProperties.ENABLED_PROPERTY, havingValue = "false", matchIfMissing = true)
     Binding onSubmitMarkSubmittablesBinding(Queue onSubmitMarkSubmittablesQueue, TopicExchange submissionExchange) {
         return BindingBuilder.bind(onSubmitMarkSubmittablesQueue).to(submissionExchange).with(Queues.SUBMISSION_SUBMITTED_ROUTING_KEY);
     }
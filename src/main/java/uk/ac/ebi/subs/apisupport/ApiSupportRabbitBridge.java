@@ -7,7 +7,6 @@ import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.rabbit.core.RabbitMessagingTemplate;
 import org.springframework.stereotype.Component;
 import uk.ac.ebi.subs.messaging.Queues;
-import uk.ac.ebi.subs.processing.SubmissionEnvelope;
 import uk.ac.ebi.subs.repository.model.Submission;
 
 /**
@@ -36,18 +35,4 @@ public class ApiSupportRabbitBridge {
 
         apiSupportService.deleteSubmissionContents(submission);
     }
-
-    /**
-     * Once a submission has been submitted, change the processing status of its submittables from 'draft' to 'submitted'.
-     *
-     * @param submissionEnvelope this envelope (wrapper object) contains the {@link Submission} entity
-     */
-    @RabbitListener(queues = Queues.SUBMISSION_SUBMITTED_MARK_SUBMITTABLES)
-    public void onSubmissionMarkSubmittablesSubmitted(SubmissionEnvelope submissionEnvelope) {
-        uk.ac.ebi.subs.data.Submission submission = submissionEnvelope.getSubmission();
-
-        logger.info("Marking submittables as submitted for {}",submission.getId());
-
-        apiSupportService.markContentsAsSubmitted(submission);
-    }
 }
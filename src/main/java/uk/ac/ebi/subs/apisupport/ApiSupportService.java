@@ -1,21 +1,41 @@
 package uk.ac.ebi.subs.apisupport;
 
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import uk.ac.ebi.subs.data.status.ProcessingStatusEnum;
 import uk.ac.ebi.subs.data.status.SubmissionStatusEnum;
 import uk.ac.ebi.subs.error.EntityNotFoundException;
+import uk.ac.ebi.subs.processing.SubmittableClasses;
+import uk.ac.ebi.subs.progressmonitor.SubmissionStatusCounter;
 import uk.ac.ebi.subs.repository.model.ProcessingStatus;
+import uk.ac.ebi.subs.repository.model.StoredSubmittable;
 import uk.ac.ebi.subs.repository.model.Submission;
 import uk.ac.ebi.subs.repository.repos.SubmissionRepository;
-import uk.ac.ebi.subs.repository.repos.status.ProcessingStatusRepository;
 import uk.ac.ebi.subs.repository.repos.status.SubmissionStatusRepository;
-import uk.ac.ebi.subs.repository.repos.submittables.SubmittableRepository;
 import uk.ac.ebi.subs.validator.repository.ValidationResultRepository;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
 
 /**
  * This is a Spring @Service component for dealing with works after deleted a {@link Submission} entity
@@ -26,47 +46,74 @@ public class ApiSupportService {
 
     private static final Logger logger = LoggerFactory.getLogger(ApiSupportService.class);
 
-    private final List<SubmittableRepository<?>> submissionContentsRepositories;
-    private final ProcessingStatusRepository processingStatusRepository;
+    private static final Set<String> NOT_COPIED_FIELDS = new HashSet<>(Arrays.asList("_id", "_class", "status"));
+
     private final SubmissionStatusRepository submissionStatusRepository;
     private final SubmissionRepository submissionRepository;
     private final ValidationResultRepository validationResultRepository;
+    private final SubmissionStatusCounter submissionStatusCounter;
+    private final List<Class<? extends StoredSubmittable>> submittablesClassList;
+    private final MongoTemplate mongoTemplate;
+    private final SubmissionContentsDeleter submissionContentsDeleter;
+    private final SubmittedMarkingProperties submittedMarkingProperties;
 
-    public ApiSupportService(List<SubmittableRepository<?>> submissionContentsRepositories,
-                             ProcessingStatusRepository processingStatusRepository,
-                             SubmissionStatusRepository submissionStatusRepository,
+    public ApiSupportService(SubmissionStatusRepository submissionStatusRepository,
                              SubmissionRepository submissionRepository,
-                             ValidationResultRepository validationResultRepository) {
-        this.submissionContentsRepositories = submissionContentsRepositories;
-        this.processingStatusRepository = processingStatusRepository;
+                             ValidationResultRepository validationResultRepository,
+                             SubmissionStatusCounter submissionStatusCounter,
+                             List<Class<? extends StoredSubmittable>> submittablesClassList,
+                             MongoTemplate mongoTemplate,
+                             SubmissionContentsDeleter submissionContentsDeleter,
+                             SubmittedMarkingProperties submittedMarkingProperties) {
         this.submissionStatusRepository = submissionStatusRepository;
         this.submissionRepository = submissionRepository;
         this.validationResultRepository = validationResultRepository;
+        this.submissionStatusCounter = submissionStatusCounter;
+        this.submittablesClassList = submittablesClassList;
+        this.mongoTemplate = mongoTemplate;
+        this.submissionContentsDeleter = submissionContentsDeleter;
+        this.submittedMarkingProperties = submittedMarkingProperties;
     }
 
     /**
      * After a submission has been deleted through the API, cleanup its lingering contents
+     * The collections are cleaned up concurrently and in chunks, see {@link SubmissionContentsDeleter}.
      *
      * @param submission the {@link Submission} entity that has been deleted
      */
     public void deleteSubmissionContents(Submission submission) {
         logger.info("deleting submission {}", submission);
 
-        processingStatusRepository.deleteBySubmissionId(submission.getId());
-        logger.debug("deleted processing statuses for submission {}",submission);
+        final String submissionId = submission.getId();
+        Map<String, Supplier<Long>> deletes = new LinkedHashMap<>();
 
-        submissionStatusRepository.delete(submission.getSubmissionStatus());
-        logger.debug("deleted submission status for submission {}",submission);
+        deletes.put(mongoTemplate.getCollectionName(ProcessingStatus.class), () ->
+                submissionContentsDeleter.deleteInChunks(where("submissionId").is(submissionId), ProcessingStatus.class)
+        );
+
+        submittablesClassList.forEach(submittableClass -> deletes.put(
+                mongoTemplate.getCollectionName(submittableClass),
+                () -> submissionContentsDeleter.deleteInChunks(where("submission.$id").is(submissionId), submittableClass)
+        ));
+
+        deletes.put("validationResults", () -> {
+            validationResultRepository.deleteAllBySubmissionId(submissionId);
+            return null;
+        });
+
+        submissionContentsDeleter.deleteAll(submissionId, deletes);
 
-        submissionContentsRepositories.forEach(repo -> repo.deleteBySubmissionId(submission.getId()));
-        logger.debug("deleted contents of submission {}",submission);
+        submissionStatusCounter.remove(submissionId);
 
-        validationResultRepository.deleteAllBySubmissionId(submission.getId());
-        logger.debug("deleted submission {} validation results", submission.getId());
+        submissionStatusRepository.delete(submission.getSubmissionStatus());
+        logger.debug("deleted submission status for submission {}",submission);
     }
 
     /**
      * Once a submission has been submitted, change the processing status of its submittables from 'draft' to 'submitted'
+     * The IDs of the submittables in draft are read first. Each of their statuses gets the details of its submittable
+     * and the submitted status in the same write, only if it is still in draft, with one unordered bulk write per
+     * batch. Submittables added meanwhile keep their draft status, so no status becomes submitted without its details.
      *
      * @param submission the {@link Submission} entity that has been submitted
      */
@@ -77,25 +124,159 @@ public class ApiSupportService {
             .orElseThrow(() -> new EntityNotFoundException(
                 String.format("Submission entity with ID: %s is not found in the database.", submissionId)));
 
+        markDraftContentsAsSubmitted(currentSubmission);
+    }
+
+    /**
+     * Same as {@link #markContentsAsSubmitted(uk.ac.ebi.subs.data.Submission)}, for a submission already loaded
+     *
+     * @param currentSubmission the {@link Submission} entity as currently stored
+     */
+    public void markDraftContentsAsSubmitted(Submission currentSubmission) {
+        markDraftContentsAsSubmitted(currentSubmission, draftProcessingStatuses(currentSubmission.getId()));
+    }
+
+    /**
+     * Same as {@link #markDraftContentsAsSubmitted(Submission)}, with the processing statuses of the submission
+     * already loaded
+     *
+     * @param currentSubmission  the {@link Submission} entity as currently stored
+     * @param processingStatuses the processing statuses of the submission, with their submittable ID, submittable type
+     *                           and status, only the ones in draft are marked
+     */
+    public void markDraftContentsAsSubmitted(Submission currentSubmission, List<ProcessingStatus> processingStatuses) {
+        final String submissionId = currentSubmission.getId();
+
         if (SubmissionStatusEnum.Draft.name().equals(currentSubmission.getSubmissionStatus().getStatus())) {
-            logger.info("not safe to set submission contents to submitted, still in draft in db {}",submission);
+            logger.info("not safe to set submission contents to submitted, still in draft in db {}",submissionId);
             return; //status update did not succeed, return
         }
 
-        logger.info("setting submission contents to submitted {}",submission);
-
-        submissionContentsRepositories
-                .stream()
-                .flatMap(repo -> repo.streamBySubmissionId(submissionId))
-                .filter(item -> ProcessingStatusEnum.Draft.name().equals(item.getProcessingStatus().getStatus()))
-                .map(item -> {
-                    ProcessingStatus status = item.getProcessingStatus();
-                    status.copyDetailsFromSubmittable(item);
-                    status.setStatus(ProcessingStatusEnum.Submitted);
-                    return status;
-                })
-                .forEach(processingStatusRepository::save);
-
-        logger.debug("set submission contents to submitted {}",submission);
+        logger.info("setting submission contents to submitted {}",submissionId);
+
+        List<ProcessingStatus> draftProcessingStatuses = processingStatuses.stream()
+                .filter(processingStatus -> ProcessingStatusEnum.Draft.name().equals(processingStatus.getStatus()))
+                .collect(Collectors.toList());
+
+        Set<String> draftIds = new HashSet<>();
+        draftProcessingStatuses.forEach(processingStatus -> draftIds.add(processingStatus.getSubmittableId()));
+
+        submissionStatusCounter.countStatusWrites(submissionId, () -> {
+            Set<String> unmarkedIds = new HashSet<>(draftIds);
+            long submittedCount = 0;
+
+            for (Map.Entry<Class<? extends StoredSubmittable>, List<String>> submittableIds :
+                    SubmittableClasses.submittableIdsByClass(submittablesClassList, draftProcessingStatuses).entrySet()) {
+                submittedCount += markAsSubmittedWithDetails(
+                        currentSubmission, submittableIds.getKey(), submittableIds.getValue(), unmarkedIds);
+            }
+
+            submittedCount += markAsSubmitted(submissionId, new ArrayList<>(unmarkedIds));
+
+            logger.debug("set submission contents to submitted {}, {} items", submissionId, submittedCount);
+
+            Map<String, Long> statusCountDeltas = new HashMap<>();
+            statusCountDeltas.put(ProcessingStatusEnum.Draft.name(), -submittedCount);
+            statusCountDeltas.put(ProcessingStatusEnum.Submitted.name(), submittedCount);
+            return statusCountDeltas;
+        });
+    }
+
+    /**
+     * The processing statuses in draft, with only their submittable ID and type
+     */
+    private List<ProcessingStatus> draftProcessingStatuses(String submissionId) {
+        Query query = query(where("submissionId").is(submissionId).and("status").is(ProcessingStatusEnum.Draft.name()));
+        query.fields().include("submittableId").include("submittableType").include("status");
+
+        return mongoTemplate.find(query, ProcessingStatus.class);
+    }
+
+    /**
+     * Copy the details of the submittables to their processing statuses, as they may have changed while in draft,
+     * and mark them as submitted in the same write, if they are still in draft.
+     * Only the fields the details are taken from are read, the statuses are updated with one unordered bulk write
+     * per batch.
+     *
+     * @param unmarkedIds the IDs not marked yet, the IDs of the submittables found are removed from it
+     * @return the number of processing statuses marked as submitted
+     */
+    private long markAsSubmittedWithDetails(Submission submission, Class<? extends StoredSubmittable> submittableClass,
+                                            List<String> submittableIds, Set<String> unmarkedIds) {
+        int batchSize = submittedMarkingProperties.getBatchSize();
+        long submittedCount = 0;
+
+        for (int from = 0; from < submittableIds.size(); from += batchSize) {
+            List<String> batchIds = submittableIds.subList(from, Math.min(from + batchSize, submittableIds.size()));
+
+            Query query = query(where("_id").in(batchIds));
+            query.fields().include("_id").include("alias").include("accession").include("team");
+
+            List<? extends StoredSubmittable> items = mongoTemplate.find(query, submittableClass);
+
+            if (items.isEmpty()) {
+                continue;
+            }
+
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProcessingStatus.class);
+            Date lastModifiedDate = new Date();
+
+            for (StoredSubmittable item : items) {
+                item.setSubmission(submission);
+
+                ProcessingStatus details = new ProcessingStatus();
+                details.copyDetailsFromSubmittable(item);
+
+                ops.updateOne(
+                        query(where("submittableId").is(item.getId()).and("status").is(ProcessingStatusEnum.Draft.name())),
+                        detailsUpdate(details)
+                                .set("status", ProcessingStatusEnum.Submitted.name())
+                                .set("lastModifiedDate", lastModifiedDate)
+                );
+                unmarkedIds.remove(item.getId());
+            }
+
+            submittedCount += ops.execute().getMatchedCount();
+        }
+
+        return submittedCount;
+    }
+
+    /**
+     * Mark the processing statuses of submittables that could not be read as submitted, without details, so they
+     * do not hold back the submission
+     *
+     * @return the number of processing statuses marked as submitted
+     */
+    private long markAsSubmitted(String submissionId, List<String> submittableIds) {
+        int batchSize = submittedMarkingProperties.getBatchSize();
+        long submittedCount = 0;
+
+        for (int from = 0; from < submittableIds.size(); from += batchSize) {
+            List<String> batchIds = submittableIds.subList(from, Math.min(from + batchSize, submittableIds.size()));
+
+            submittedCount += mongoTemplate.updateMulti(
+                    query(where("submissionId").is(submissionId)
+                            .and("submittableId").in(batchIds)
+                            .and("status").is(ProcessingStatusEnum.Draft.name())),
+                    new Update().set("status", ProcessingStatusEnum.Submitted.name()).set("lastModifiedDate", new Date()),
+                    ProcessingStatus.class
+            ).getN();
+        }
+
+        return submittedCount;
+    }
+
+    private Update detailsUpdate(ProcessingStatus details) {
+        DBObject detailsObject = new BasicDBObject();
+        mongoTemplate.getConverter().write(details, detailsObject);
+
+        Update update = new Update();
+        for (String key : detailsObject.keySet()) {
+            if (!NOT_COPIED_FIELDS.contains(key)) {
+                update.set(key, detailsObject.get(key));
+            }
+        }
+        return update;
     }
 }
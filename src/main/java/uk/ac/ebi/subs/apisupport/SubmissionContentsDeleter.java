@@ -0,0 +1,148 @@
+package uk.ac.ebi.subs.apisupport;
+
+import com.mongodb.DBObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Runs the deletes of a submission's contents concurrently on a bounded pool, one task per collection.
+ *
+ * Each collection is cleaned up in chunks of documents taken in _id order, with a pause between chunks so that the
+ * write locks on busy collections are released regularly. A failure in one collection does not stop the others,
+ * once every collection has been handled the first failure is rethrown to the caller.
+ */
+@Component
+public class SubmissionContentsDeleter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubmissionContentsDeleter.class);
+
+    private MongoTemplate mongoTemplate;
+    private SubmissionDeletionProperties submissionDeletionProperties;
+    private ThreadPoolTaskExecutor taskExecutor;
+
+    public SubmissionContentsDeleter(MongoTemplate mongoTemplate, SubmissionDeletionProperties submissionDeletionProperties) {
+        this.mongoTemplate = mongoTemplate;
+        this.submissionDeletionProperties = submissionDeletionProperties;
+
+        this.taskExecutor = new ThreadPoolTaskExecutor();
+        this.taskExecutor.setCorePoolSize(submissionDeletionProperties.getPoolSize());
+        this.taskExecutor.setMaxPoolSize(submissionDeletionProperties.getPoolSize());
+        this.taskExecutor.setThreadNamePrefix("submission-deletion-");
+        this.taskExecutor.setWaitForTasksToCompleteOnShutdown(true);
+        this.taskExecutor.setAwaitTerminationSeconds(60);
+        this.taskExecutor.initialize();
+    }
+
+    /**
+     * Run the deletes, concurrently
+     *
+     * @param submissionId the ID of the submission whose contents are deleted
+     * @param deletes      the delete of each collection, by collection name, returning the number of deleted documents
+     *                     or null when the delete does not report it
+     * @return the number of deleted documents of each collection that reported it
+     * @throws RuntimeException the first failure, after all collections have been handled
+     */
+    public Map<String, Long> deleteAll(String submissionId, Map<String, Supplier<Long>> deletes) {
+        Map<String, Future<Long>> futures = new LinkedHashMap<>();
+        deletes.forEach((collectionName, delete) -> futures.put(collectionName, taskExecutor.submit(delete::get)));
+
+        Map<String, Long> deletedCounts = new LinkedHashMap<>();
+        Map<String, RuntimeException> failures = new LinkedHashMap<>();
+
+        futures.forEach((collectionName, future) -> {
+            try {
+                Long deletedCount = future.get();
+                if (deletedCount != null) {
+                    deletedCounts.put(collectionName, deletedCount);
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                failures.put(collectionName,
+                        cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failures.put(collectionName, new IllegalStateException(e));
+            }
+        });
+
+        logger.info("deleted contents of submission {}: {}", submissionId, deletedCounts);
+
+        if (failures.isEmpty()) {
+            return deletedCounts;
+        }
+
+        failures.forEach((collectionName, failure) ->
+                logger.error("Failed to delete {} of submission {}", collectionName, submissionId, failure)
+        );
+
+        throw failures.values().iterator().next();
+    }
+
+    /**
+     * Delete the documents matching the criteria, in chunks
+     *
+     * @param criteria    selects the documents to delete
+     * @param entityClass the class mapped to the collection
+     * @return the number of deleted documents
+     */
+    public long deleteInChunks(Criteria criteria, Class<?> entityClass) {
+        final String collectionName = mongoTemplate.getCollectionName(entityClass);
+        long deletedCount = 0;
+        List<Object> ids;
+
+        do {
+            Query chunkQuery = query(criteria)
+                    .with(new Sort(Sort.Direction.ASC, "_id"))
+                    .limit(submissionDeletionProperties.getChunkSize());
+            chunkQuery.fields().include("_id");
+
+            ids = mongoTemplate.find(chunkQuery, DBObject.class, collectionName).stream()
+                    .map(document -> document.get("_id"))
+                    .collect(Collectors.toList());
+
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            deletedCount += mongoTemplate.remove(query(where("_id").in(ids)), entityClass).getN();
+
+            if (ids.size() == submissionDeletionProperties.getChunkSize()) {
+                pause();
+            }
+        } while (ids.size() == submissionDeletionProperties.getChunkSize());
+
+        return deletedCount;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        taskExecutor.shutdown();
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(submissionDeletionProperties.getChunkPause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
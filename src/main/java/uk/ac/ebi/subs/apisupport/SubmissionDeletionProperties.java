@@ -0,0 +1,23 @@
+package uk.ac.ebi.subs.apisupport;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the deletion of submission contents.
+ * The collections are cleaned up concurrently on poolSize threads, each in chunks of chunkSize documents with a
+ * pause (in milliseconds) between chunks.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Component
+@ConfigurationProperties(prefix = "usi.apisupport.deletion")
+class SubmissionDeletionProperties {
+    private int poolSize = 4;
+    private int chunkSize = 1000;
+    private long chunkPause = 50;
+}
@@ -0,0 +1,43 @@
+package uk.ac.ebi.subs.apisupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.subs.messaging.Queues;
+import uk.ac.ebi.subs.processing.SubmissionEnvelope;
+import uk.ac.ebi.subs.processing.initialsubmissionprocessing.SubmissionSubmittedPipeline;
+import uk.ac.ebi.subs.processing.initialsubmissionprocessing.SubmittedPipelineProperties;
+import uk.ac.ebi.subs.repository.model.Submission;
+
+/**
+ * This Spring component contains the listener marking the contents of a submitted {@link Submission} as submitted.
+ * Only registered when the {@link SubmissionSubmittedPipeline} is disabled, as its queue is not declared otherwise.
+ */
+@Component
+@ConditionalOnProperty(name = SubmittedPipelineProperties.ENABLED_PROPERTY, havingValue = "false", matchIfMissing = true)
+public class SubmittedContentsListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubmittedContentsListener.class);
+
+    private ApiSupportService apiSupportService;
+
+    public SubmittedContentsListener(ApiSupportService apiSupportService) {
+        this.apiSupportService = apiSupportService;
+    }
+
+    /**
+     * Once a submission has been submitted, change the processing status of its submittables from 'draft' to 'submitted'.
+     *
+     * @param submissionEnvelope this envelope (wrapper object) contains the {@link Submission} entity
+     */
+    @RabbitListener(queues = Queues.SUBMISSION_SUBMITTED_MARK_SUBMITTABLES)
+    public void onSubmissionMarkSubmittablesSubmitted(SubmissionEnvelope submissionEnvelope) {
+        uk.ac.ebi.subs.data.Submission submission = submissionEnvelope.getSubmission();
+
+        logger.info("Marking submittables as submitted for {}",submission.getId());
+
+        apiSupportService.markContentsAsSubmitted(submission);
+    }
+}
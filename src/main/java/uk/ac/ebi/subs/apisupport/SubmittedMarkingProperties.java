@@ -0,0 +1,20 @@
+package uk.ac.ebi.subs.apisupport;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of marking the contents of a submission as submitted.
+ * The submittables are read, and their processing statuses written, in batches of batchSize.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Component
+@ConfigurationProperties(prefix = "usi.apisupport.mark-submitted")
+class SubmittedMarkingProperties {
+    private int batchSize = 1000;
+}
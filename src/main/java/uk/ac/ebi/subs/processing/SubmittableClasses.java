@@ -0,0 +1,50 @@
+package uk.ac.ebi.subs.processing;
+
+import uk.ac.ebi.subs.repository.model.ProcessingStatus;
+import uk.ac.ebi.subs.repository.model.StoredSubmittable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the class of the submittables from the submittable type kept in their processing status.
+ */
+public final class SubmittableClasses {
+
+    private SubmittableClasses() {
+    }
+
+    /**
+     * The IDs of the submittables of the processing statuses, by the class of submittable.
+     * Submittables of an unknown type are listed under every class.
+     *
+     * @param submittablesClassList the classes of submittable
+     * @param processingStatuses    the processing statuses, with their submittable ID and type
+     * @return the submittable IDs by class, in the order of the processing statuses
+     */
+    public static Map<Class<? extends StoredSubmittable>, List<String>> submittableIdsByClass(
+            List<Class<? extends StoredSubmittable>> submittablesClassList,
+            Collection<ProcessingStatus> processingStatuses) {
+        Map<String, Class<? extends StoredSubmittable>> submittableClassesByType = new HashMap<>();
+        submittablesClassList.forEach(clazz -> submittableClassesByType.put(clazz.getSimpleName(), clazz));
+
+        Map<Class<? extends StoredSubmittable>, List<String>> submittableIdsByClass = new LinkedHashMap<>();
+        for (ProcessingStatus processingStatus : processingStatuses) {
+            Class<? extends StoredSubmittable> submittableClass = submittableClassesByType.get(processingStatus.getSubmittableType());
+            List<Class<? extends StoredSubmittable>> classes = (submittableClass == null)
+                    ? submittablesClassList
+                    : Collections.singletonList(submittableClass);
+
+            classes.forEach(clazz -> submittableIdsByClass
+                    .computeIfAbsent(clazz, key -> new ArrayList<>())
+                    .add(processingStatus.getSubmittableId()));
+        }
+
+        return submittableIdsByClass;
+    }
+}
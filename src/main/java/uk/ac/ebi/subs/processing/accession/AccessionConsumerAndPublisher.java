@@ -4,6 +4,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.rabbit.core.RabbitMessagingTemplate;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -13,12 +21,17 @@ import uk.ac.ebi.subs.processing.AccessionIdEnvelope;
 import uk.ac.ebi.subs.processing.ProcessingCertificate;
 import uk.ac.ebi.subs.processing.ProcessingCertificateEnvelope;
 import uk.ac.ebi.subs.repository.model.accession.AccessionIdWrapper;
-import uk.ac.ebi.subs.repository.repos.AccessionIdRepository;
 
+import javax.annotation.PostConstruct;
 import java.time.LocalDateTime;
+import java.util.Date;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
 import static uk.ac.ebi.subs.processing.accession.AccessionQueueConfig.USI_ACCESSIONIDS_CONSUMER;
 import static uk.ac.ebi.subs.processing.accession.AccessionQueueConfig.USI_ARCHIVE_ACCESSIONIDS_PUBLISHED_ROUTING_KEY;
 
@@ -28,12 +41,19 @@ public class AccessionConsumerAndPublisher {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AccessionConsumerAndPublisher.class);
 
+    private static final String CLAIMED_AT = "claimedAt";
+    private static final String BIOSAMPLES_ACCESSION_IDS = "bioSamplesAccessionIds";
+    private static final String UNSENT_BIOSAMPLES_ACCESSION_IDS = "unsentBioSamplesAccessionIds";
+
     private RabbitMessagingTemplate rabbitMessagingTemplate;
-    private AccessionIdRepository accessionIdRepository;
+    private MongoTemplate mongoTemplate;
+    private AccessionPublishingProperties accessionPublishingProperties;
 
-    public AccessionConsumerAndPublisher(RabbitMessagingTemplate rabbitMessagingTemplate, AccessionIdRepository accessionIdRepository) {
+    public AccessionConsumerAndPublisher(RabbitMessagingTemplate rabbitMessagingTemplate, MongoTemplate mongoTemplate,
+                                         AccessionPublishingProperties accessionPublishingProperties) {
         this.rabbitMessagingTemplate = rabbitMessagingTemplate;
-        this.accessionIdRepository = accessionIdRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.accessionPublishingProperties = accessionPublishingProperties;
     }
 
     @RabbitListener(queues = USI_ACCESSIONIDS_CONSUMER)
@@ -53,46 +73,158 @@ public class AccessionConsumerAndPublisher {
             throw new IllegalStateException("ProcessingCertificateEnvelope can not contain processing certificates from more than 1 archive.");
 
         Archive archive = archives.get(0);
-        if (accessionIdRepository.findBySubmissionId(submissionId) == null) {
-            if (archive == Archive.BioStudies) {
-                accessionIdRepository.save(
-                        createAccessionIdWrapper(submissionId, getBioStudiesAccessionID(processingCertificateEnvelope), null));
-            } else {
-                List<String> bioSamplesAccessionIDs = collectBioSamplesAccessionIDs(processingCertificateEnvelope);
-                accessionIdRepository.save(
-                        createAccessionIdWrapper(submissionId, null, bioSamplesAccessionIDs));
-            }
+        Update update = new Update();
+        if (archive == Archive.BioStudies) {
+            final String bioStudiesAccessionID = getBioStudiesAccessionID(processingCertificateEnvelope);
+
+            LOGGER.info("Update biostudies accessionID {} for submission: {}", bioStudiesAccessionID, submissionId);
+
+            update.set("bioStudiesAccessionId", bioStudiesAccessionID);
         } else {
-            AccessionIdWrapper accessionIDWrapper = accessionIdRepository.findBySubmissionId(submissionId);
-            if (archive == Archive.BioStudies) {
-                final String bioStudiesAccessionID = getBioStudiesAccessionID(processingCertificateEnvelope);
+            final List<String> bioSamplesAccessionIds = collectBioSamplesAccessionIDs(processingCertificateEnvelope);
 
-                LOGGER.info("Update biostudies accessionID {} for submission: {}", bioStudiesAccessionID, submissionId);
+            LOGGER.info("Update biosamples accessionIDs {} for submission: {}", bioSamplesAccessionIds, submissionId);
 
-                accessionIDWrapper.setBioStudiesAccessionId(bioStudiesAccessionID);
+            update.addToSet(BIOSAMPLES_ACCESSION_IDS).each(bioSamplesAccessionIds.toArray());
+            update.addToSet(UNSENT_BIOSAMPLES_ACCESSION_IDS).each(bioSamplesAccessionIds.toArray());
+        }
 
-            } else {
-                final List<String> bioSamplesAccessionIds = collectBioSamplesAccessionIDs(processingCertificateEnvelope);
+        AccessionIdWrapper accessionIdWrapper = upsertAccessionIdWrapper(submissionId, update);
 
-                LOGGER.info("Update biosamples accessionIDs {} for submission: {}", bioSamplesAccessionIds, submissionId);
+        if (isReadyToSend(accessionIdWrapper)) {
+            claimAndSend(accessionIdWrapper);
+        }
+    }
 
-                accessionIDWrapper.setBioSamplesAccessionIds(bioSamplesAccessionIds);
-            }
+    /**
+     * Apply the update to the accession IDs of the submission in one atomic upsert.
+     * Two consumers inserting the wrapper of a submission at the same time make one of the upserts fail on the
+     * unique index, that upsert is retried once as an update of the inserted document.
+     *
+     * @return the wrapper as updated
+     */
+    private AccessionIdWrapper upsertAccessionIdWrapper(String submissionId, Update update) {
+        Query query = query(where("submissionId").is(submissionId));
+        FindAndModifyOptions options = FindAndModifyOptions.options().upsert(true).returnNew(true);
 
-            accessionIdRepository.save(accessionIDWrapper);
+        try {
+            return mongoTemplate.findAndModify(query, update, options, AccessionIdWrapper.class);
+        } catch (DuplicateKeyException e) {
+            LOGGER.debug("Concurrent insert of the accessionIDs of submission: {}, retrying", submissionId);
+            return mongoTemplate.findAndModify(query, update, options, AccessionIdWrapper.class);
         }
     }
 
-    private AccessionIdWrapper createAccessionIdWrapper(
-            String submissionId, String bioStudiesAccessionId, List<String> bioSamplesAccessionIds) {
-        AccessionIdWrapper accessionIdWrapper = new AccessionIdWrapper();
-        accessionIdWrapper.setSubmissionId(submissionId);
-        accessionIdWrapper.setBioStudiesAccessionId(bioStudiesAccessionId);
-        accessionIdWrapper.setBioSamplesAccessionIds(bioSamplesAccessionIds);
+    /**
+     * Whether the wrapper has both kinds of accession IDs, the claim then only succeeds if some of them are unsent
+     */
+    private boolean isReadyToSend(AccessionIdWrapper accessionIdWrapper) {
+        return accessionIdWrapper.getBioSamplesAccessionIds() != null
+                && !accessionIdWrapper.getBioSamplesAccessionIds().isEmpty()
+                && accessionIdWrapper.getBioStudiesAccessionId() != null
+                && !accessionIdWrapper.getBioStudiesAccessionId().isEmpty();
+    }
 
-        LOGGER.info("Persist accessionIDs to DB: {}", accessionIdWrapper);
+    /**
+     * Claim the wrapper by setting its claimedAt lease, if it has unsent accession IDs and is not claimed by someone
+     * else yet, and send its accession IDs. The messageSentDate is only set once the message has been sent, when
+     * sending fails the claim is released so the message can be sent again. A claim left by a node that stopped while
+     * sending expires after the lease, and the wrapper is then sent by the scheduler.
+     * The BioSamples accession IDs sent are then removed from the unsent ones, so the ones that arrived while
+     * sending, or after the wrapper was sent, make it ready to be sent again with all of its accession IDs.
+     *
+     * @return true if this node claimed and sent the wrapper
+     */
+    private boolean claimAndSend(AccessionIdWrapper accessionIdWrapper) {
+        Date claimDate = new Date();
 
-        return accessionIdWrapper;
+        AccessionIdWrapper claimedWrapper = mongoTemplate.findAndModify(
+                query(where("_id").is(accessionIdWrapper.getId())).addCriteria(readyToSend(claimDate)),
+                new Update().set(CLAIMED_AT, claimDate),
+                FindAndModifyOptions.options().returnNew(true),
+                AccessionIdWrapper.class
+        );
+
+        if (claimedWrapper == null) {
+            LOGGER.debug("AccessionIDs of submission: {} already sent or being sent", accessionIdWrapper.getSubmissionId());
+            return false;
+        }
+
+        AccessionIdEnvelope accessionIdEnvelope = createAndPopulateAccessionIdEnvelope(claimedWrapper);
+
+        try {
+            rabbitMessagingTemplate.convertAndSend(
+                    Exchanges.SUBMISSIONS,
+                    USI_ARCHIVE_ACCESSIONIDS_PUBLISHED_ROUTING_KEY,
+                    accessionIdEnvelope
+            );
+        } catch (RuntimeException e) {
+            mongoTemplate.updateFirst(
+                    query(where("_id").is(claimedWrapper.getId()).and(CLAIMED_AT).is(claimDate)),
+                    new Update().unset(CLAIMED_AT),
+                    AccessionIdWrapper.class
+            );
+            throw e;
+        }
+
+        mongoTemplate.updateFirst(
+                query(where("_id").is(claimedWrapper.getId())),
+                new Update()
+                        .set("messageSentDate", LocalDateTime.now())
+                        .unset(CLAIMED_AT)
+                        .pullAll(UNSENT_BIOSAMPLES_ACCESSION_IDS, claimedWrapper.getBioSamplesAccessionIds().toArray()),
+                AccessionIdWrapper.class
+        );
+
+        LOGGER.info("Sent accessionIdEnvelope: {} to archives", accessionIdEnvelope);
+
+        return true;
+    }
+
+    /**
+     * Wrappers with a BioStudies accession and BioSamples accessions not sent yet, that are not being sent
+     */
+    private Criteria readyToSend(Date now) {
+        return where("bioStudiesAccessionId").nin(null, "").andOperator(unsentAccessions(), notClaimedSince(now));
+    }
+
+    /**
+     * Wrappers with BioSamples accessions that arrived since the wrapper was last sent, or never sent with at least
+     * one BioSamples accession
+     */
+    private Criteria unsentAccessions() {
+        return new Criteria().orOperator(
+                where(UNSENT_BIOSAMPLES_ACCESSION_IDS + ".0").exists(true),
+                where("messageSentDate").is(null).and(BIOSAMPLES_ACCESSION_IDS + ".0").exists(true)
+        );
+    }
+
+    /**
+     * Wrappers without a claim, or with a claim older than the lease
+     */
+    private Criteria notClaimedSince(Date now) {
+        return new Criteria().orOperator(
+                where(CLAIMED_AT).is(null),
+                where(CLAIMED_AT).lt(new Date(now.getTime() - accessionPublishingProperties.getClaimLease()))
+        );
+    }
+
+    /**
+     * Make sure there is at most one wrapper per submission, so that concurrent upserts can not create duplicates,
+     * and that the wrappers never sent can be found without scanning the ones already sent.
+     */
+    @PostConstruct
+    public void ensureIndexes() {
+        try {
+            mongoTemplate.indexOps(AccessionIdWrapper.class)
+                    .ensureIndex(new Index().on("submissionId", Sort.Direction.ASC).unique());
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not create the unique submissionId index of the accessionIDs, " +
+                    "duplicated wrappers have to be removed first", e);
+        }
+
+        mongoTemplate.indexOps(AccessionIdWrapper.class).ensureIndex(
+                new Index().on("messageSentDate", Sort.Direction.ASC).on("bioStudiesAccessionId", Sort.Direction.ASC));
     }
 
     private String getBioStudiesAccessionID(ProcessingCertificateEnvelope processingCertificateEnvelope) {
@@ -104,37 +236,52 @@ public class AccessionConsumerAndPublisher {
                 .filter(processingCertificate ->
                         processingCertificate.getArchive() == Archive.BioSamples)
                 .map(ProcessingCertificate::getAccession)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Sweep for the accession IDs of submissions that have both BioSamples and BioStudies accessions but have not
+     * all been sent, because sending them when they were received failed. The wrappers are read by _id in pages, each
+     * one is claimed before it is sent, so a wrapper is never sent twice.
+     */
     @Scheduled(fixedDelayString = "${usi.dispatcher.accessionid.delayTime}")
     public void sendAccessionIDs() {
         LOGGER.info("Scheduler is started to execute the accession ID sending");
 
-        List<AccessionIdWrapper> accessionIdWrappers = accessionIdRepository.findByMessageSentDateIsNull();
-
-        accessionIdWrappers.forEach(
-            accessionIDWrapper -> {
-                if (accessionIDWrapper.getBioSamplesAccessionIds() != null
-                    && accessionIDWrapper.getBioSamplesAccessionIds().size() > 0
-                    && accessionIDWrapper.getBioStudiesAccessionId() != null
-                    && !accessionIDWrapper.getBioStudiesAccessionId().isEmpty()) {
-
-                    AccessionIdEnvelope accessionIdEnvelope = createAndPopulateAccessionIdEnvelope(accessionIDWrapper);
+        int sentCount = 0;
+        String lastId = null;
+        List<AccessionIdWrapper> page;
 
-                    LOGGER.info("Sent accessionIdEnvelope: {} to archives", accessionIdEnvelope);
+        do {
+            Query query = readyToSendQuery();
+            if (lastId != null) {
+                query.addCriteria(where("_id").gt(lastId));
+            }
+            query.with(new Sort(Sort.Direction.ASC, "_id")).limit(accessionPublishingProperties.getPageSize());
 
-                    rabbitMessagingTemplate.convertAndSend(
-                                Exchanges.SUBMISSIONS,
-                                USI_ARCHIVE_ACCESSIONIDS_PUBLISHED_ROUTING_KEY,
-                                accessionIdEnvelope
-                    );
+            page = mongoTemplate.find(query, AccessionIdWrapper.class);
 
-                    accessionIDWrapper.setMessageSentDate(LocalDateTime.now());
-                    accessionIdRepository.save(accessionIDWrapper);
+            for (AccessionIdWrapper accessionIDWrapper : page) {
+                try {
+                    if (claimAndSend(accessionIDWrapper)) {
+                        sentCount++;
+                    }
+                } catch (RuntimeException e) {
+                    LOGGER.error("Sending the accessionIDs of submission: {} failed", accessionIDWrapper.getSubmissionId(), e);
                 }
             }
-        );
+
+            if (!page.isEmpty()) {
+                lastId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == accessionPublishingProperties.getPageSize());
+
+        LOGGER.info("Accession ID sending finished, {} envelopes sent", sentCount);
+    }
+
+    private Query readyToSendQuery() {
+        return query(readyToSend(new Date()));
     }
 
     private AccessionIdEnvelope createAndPopulateAccessionIdEnvelope(AccessionIdWrapper accessionIDWrapper) {
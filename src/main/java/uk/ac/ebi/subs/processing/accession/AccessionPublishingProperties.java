@@ -0,0 +1,23 @@
+package uk.ac.ebi.subs.processing.accession;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the accession ID publishing.
+ * The accession IDs ready to be sent are read and marked as sent in pages of pageSize wrappers.
+ * A wrapper is claimed for claimLease milliseconds while it is sent, a claim older than that is taken over
+ * by the scheduler, as the node that made it is assumed gone.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Component
+@ConfigurationProperties(prefix = "usi.dispatcher.accessionid")
+class AccessionPublishingProperties {
+    private int pageSize = 500;
+    private long claimLease = 300000;
+}
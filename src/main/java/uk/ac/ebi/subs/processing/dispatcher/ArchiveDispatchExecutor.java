@@ -0,0 +1,111 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.subs.data.component.Archive;
+import uk.ac.ebi.subs.processing.SubmissionEnvelope;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs the dispatch of each archive's envelope, either concurrently on a bounded pool or one after the other.
+ *
+ * Archives are isolated from each other: a failure for one archive is logged and does not stop the others.
+ * Once every archive has been handled, the first failure is rethrown to the caller.
+ */
+@Component
+public class ArchiveDispatchExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveDispatchExecutor.class);
+
+    private ThreadPoolTaskExecutor taskExecutor;
+
+    public ArchiveDispatchExecutor(ArchiveDispatchProperties archiveDispatchProperties) {
+        if (archiveDispatchProperties.getPoolSize() > 0) {
+            this.taskExecutor = new ThreadPoolTaskExecutor();
+            this.taskExecutor.setCorePoolSize(archiveDispatchProperties.getPoolSize());
+            this.taskExecutor.setMaxPoolSize(archiveDispatchProperties.getPoolSize());
+            this.taskExecutor.setThreadNamePrefix("archive-dispatch-");
+            this.taskExecutor.setWaitForTasksToCompleteOnShutdown(true);
+            this.taskExecutor.setAwaitTerminationSeconds(60);
+            this.taskExecutor.initialize();
+        }
+    }
+
+    public boolean isParallel() {
+        return taskExecutor != null;
+    }
+
+    /**
+     * Dispatch the envelope of each archive
+     *
+     * @param submissionId    the ID of the submission being dispatched
+     * @param readyToDispatch the envelope of each archive
+     * @param archiveDispatch dispatches one archive's envelope
+     * @throws RuntimeException the first failure, after all archives have been handled
+     */
+    public void dispatchEach(String submissionId, Map<Archive, SubmissionEnvelope> readyToDispatch,
+                             BiConsumer<Archive, SubmissionEnvelope> archiveDispatch) {
+        Map<Archive, RuntimeException> failures = new LinkedHashMap<>();
+
+        if (isParallel() && readyToDispatch.size() > 1) {
+            Map<Archive, Future<?>> futures = new LinkedHashMap<>();
+            readyToDispatch.forEach((archive, submissionEnvelope) -> futures.put(
+                    archive,
+                    taskExecutor.submit(() -> archiveDispatch.accept(archive, submissionEnvelope))
+            ));
+
+            futures.forEach((archive, future) -> {
+                RuntimeException failure = await(future);
+                if (failure != null) {
+                    failures.put(archive, failure);
+                }
+            });
+        } else {
+            readyToDispatch.forEach((archive, submissionEnvelope) -> {
+                try {
+                    archiveDispatch.accept(archive, submissionEnvelope);
+                } catch (RuntimeException e) {
+                    failures.put(archive, e);
+                }
+            });
+        }
+
+        if (failures.isEmpty()) {
+            return;
+        }
+
+        failures.forEach((archive, failure) ->
+                logger.error("Failed to dispatch submission {} to {}", submissionId, archive, failure)
+        );
+
+        throw failures.values().iterator().next();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (taskExecutor != null) {
+            taskExecutor.shutdown();
+        }
+    }
+
+    private RuntimeException await(Future<?> future) {
+        try {
+            future.get();
+            return null;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            return cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the per-archive dispatch.
+ * With a pool size above 0, the envelopes of the archives a submission is ready for are dispatched concurrently
+ * on a pool of that size. A pool size of 0 dispatches them one after the other on the listener thread.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Component
+@ConfigurationProperties(prefix = "usi.archive.dispatcher.parallel")
+class ArchiveDispatchProperties {
+    private int poolSize = 0;
+}
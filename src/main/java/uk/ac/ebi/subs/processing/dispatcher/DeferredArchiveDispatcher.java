@@ -0,0 +1,215 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitMessagingTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.subs.data.Submission;
+import uk.ac.ebi.subs.data.component.Archive;
+import uk.ac.ebi.subs.messaging.Exchanges;
+import uk.ac.ebi.subs.messaging.Topics;
+import uk.ac.ebi.subs.processing.SubmissionEnvelope;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * Finishes the dispatch of an envelope to an archive after a settle delay.
+ *
+ * The submittables are marked as dispatched on the listener thread, the envelope is then handed over to this component,
+ * which waits for the archive's settle delay on its own scheduler before enriching the envelope with
+ * the referenced samples and uploaded files and publishing it. This way the listener thread goes back to the pool
+ * straight away.
+ *
+ * If the envelope cannot be enriched or published, the attempt is retried with a growing backoff. Once the attempts
+ * are used up, its submittables are set to error and a new dispatch of the submission is requested, so the submission
+ * is checked for completion again. The schedule only lives in memory, so the submittables are also flagged until
+ * their envelope is published, and a sweep sets the ones whose publish is overdue back to submitted and requests
+ * a new dispatch of their submissions. Such dispatches carry no JWT token.
+ */
+@Component
+public class DeferredArchiveDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeferredArchiveDispatcher.class);
+
+    private RabbitMessagingTemplate rabbitMessagingTemplate;
+    private MessageConverter messageConverter;
+    private DispatcherService dispatcherService;
+    private DeferredDispatchProperties deferredDispatchProperties;
+    private DispatchMetrics dispatchMetrics;
+    private ThreadPoolTaskScheduler taskScheduler;
+
+    public DeferredArchiveDispatcher(
+            RabbitMessagingTemplate rabbitMessagingTemplate,
+            MessageConverter messageConverter,
+            DispatcherService dispatcherService,
+            DeferredDispatchProperties deferredDispatchProperties,
+            DispatchMetrics dispatchMetrics
+    ) {
+        this.rabbitMessagingTemplate = rabbitMessagingTemplate;
+        this.rabbitMessagingTemplate.setMessageConverter(messageConverter);
+        this.messageConverter = messageConverter;
+        this.dispatcherService = dispatcherService;
+        this.deferredDispatchProperties = deferredDispatchProperties;
+        this.dispatchMetrics = dispatchMetrics;
+
+        this.taskScheduler = new ThreadPoolTaskScheduler();
+        this.taskScheduler.setPoolSize(deferredDispatchProperties.getPoolSize());
+        this.taskScheduler.setThreadNamePrefix("deferred-dispatch-");
+        this.taskScheduler.setWaitForTasksToCompleteOnShutdown(true);
+        this.taskScheduler.setAwaitTerminationSeconds(60);
+        this.taskScheduler.initialize();
+    }
+
+    /**
+     * Schedule the enrichment and publishing of an envelope whose submittables have already been marked as dispatched
+     *
+     * @param archive            the archive the envelope is for
+     * @param targetTopic        the routing key of the archive agent
+     * @param submissionEnvelope the envelope to publish
+     */
+    public void schedule(Archive archive, String targetTopic, SubmissionEnvelope submissionEnvelope) {
+        long settleDelay = deferredDispatchProperties.settleDelayFor(archive.name());
+
+        logger.debug("Submission {} to {} will be sent in {} ms",
+                submissionEnvelope.getSubmission().getId(), targetTopic, settleDelay);
+
+        scheduleAttempt(new PendingPublish(archive, targetTopic, submissionEnvelope), settleDelay);
+    }
+
+    /**
+     * Set the dispatched submittables whose envelope has not been published in time back to submitted, and request
+     * a new dispatch of their submissions
+     */
+    @Scheduled(fixedDelayString = "${usi.archive.dispatcher.deferred.sweep-delay:300000}")
+    public void redispatchOverduePublishes() {
+        Date dispatchedBefore = new Date(System.currentTimeMillis() - deferredDispatchProperties.getOverdueAfter());
+
+        for (String submissionId : dispatcherService.revertOverdueDispatches(dispatchedBefore)) {
+            Submission submission = new Submission();
+            submission.setId(submissionId);
+            requestRedispatch(new SubmissionEnvelope(submission));
+        }
+    }
+
+    private void scheduleAttempt(PendingPublish pendingPublish, long delay) {
+        taskScheduler.schedule(
+                () -> enrichAndPublish(pendingPublish),
+                new Date(System.currentTimeMillis() + delay)
+        );
+    }
+
+    private void enrichAndPublish(PendingPublish pendingPublish) {
+        final SubmissionEnvelope submissionEnvelope = pendingPublish.submissionEnvelope;
+        final String submissionId = submissionEnvelope.getSubmission().getId();
+        final String archiveName = pendingPublish.archive.name();
+        final String targetTopic = pendingPublish.targetTopic;
+
+        pendingPublish.attempts++;
+
+        try {
+            // the enrichment is not repeated once the message is built, as the uploaded files are appended
+            if (pendingPublish.message == null) {
+                dispatchMetrics.time(DispatchMetrics.SAMPLE_INSERTION, archiveName,
+                        () -> dispatcherService.insertReferencedSamples(submissionEnvelope));
+
+                dispatchMetrics.time(DispatchMetrics.FILE_INSERTION, archiveName,
+                        () -> dispatcherService.insertUploadedFiles(submissionEnvelope));
+
+                pendingPublish.message = dispatchMetrics.time(DispatchMetrics.SERIALIZATION, archiveName,
+                        () -> messageConverter.toMessage(submissionEnvelope, null));
+            }
+
+            logger.info("Submission {} to {} started", submissionId, targetTopic);
+            long submissionStart = System.nanoTime();
+
+            dispatchMetrics.time(DispatchMetrics.PUBLISH, archiveName,
+                    () -> rabbitMessagingTemplate.send(Exchanges.SUBMISSIONS, targetTopic, pendingPublish.message));
+
+            logger.info("sent submission {} to {}", submissionId, targetTopic);
+            logElapsedTimeofSendingASubmission(Duration.ofNanos(System.nanoTime() - submissionStart));
+        } catch (RuntimeException e) {
+            onPublishFailure(pendingPublish, e);
+            return;
+        }
+
+        try {
+            dispatcherService.markSubmittablesAsPublished(pendingPublish.archive, submissionEnvelope);
+        } catch (RuntimeException e) {
+            // the sweep may dispatch these again, the archive agent has to cope with the duplicate
+            logger.error("Failed to mark the submittables of submission {} to {} as published",
+                    submissionId, targetTopic, e);
+        }
+    }
+
+    private void onPublishFailure(PendingPublish pendingPublish, RuntimeException e) {
+        final SubmissionEnvelope submissionEnvelope = pendingPublish.submissionEnvelope;
+        final String submissionId = submissionEnvelope.getSubmission().getId();
+
+        if (pendingPublish.attempts < deferredDispatchProperties.getMaxAttempts()) {
+            long backoff = deferredDispatchProperties.backoffFor(pendingPublish.attempts);
+
+            logger.warn("Failed to send submission {} to {} on attempt {}, retrying in {} ms",
+                    submissionId, pendingPublish.targetTopic, pendingPublish.attempts, backoff, e);
+
+            scheduleAttempt(pendingPublish, backoff);
+            return;
+        }
+
+        logger.error("Failed to send submission {} to {} after {} attempts, setting its submittables to error",
+                submissionId, pendingPublish.targetTopic, pendingPublish.attempts, e);
+
+        try {
+            dispatcherService.markSubmittablesAsErrored(pendingPublish.archive, submissionEnvelope);
+            requestRedispatch(submissionEnvelope);
+        } catch (RuntimeException recoveryFailure) {
+            // left as dispatched, the sweep sets them back to submitted once overdue
+            logger.error("Failed to set the submittables of submission {} to error", submissionId, recoveryFailure);
+        }
+    }
+
+    private void requestRedispatch(SubmissionEnvelope submissionEnvelope) {
+        SubmissionEnvelope dispatchTrigger = new SubmissionEnvelope(submissionEnvelope.getSubmission());
+        dispatchTrigger.setJWTToken(submissionEnvelope.getJWTToken());
+
+        rabbitMessagingTemplate.convertAndSend(
+                Exchanges.SUBMISSIONS,
+                Topics.EVENT_SUBMISSION_PROCESSING_UPDATED,
+                dispatchTrigger
+        );
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        taskScheduler.shutdown();
+    }
+
+    private void logElapsedTimeofSendingASubmission(Duration elapsed) {
+        logger.info("Submission took {} to send",
+                String.format("%02d:%02d:%02d.%03d",
+                    elapsed.toHours(), elapsed.toMinutes() % 60, elapsed.getSeconds() % 60, elapsed.toMillis() % 1000)
+        );
+    }
+
+    /**
+     * An envelope waiting to be published, with the attempts made so far and its message once built
+     */
+    private static class PendingPublish {
+        private final Archive archive;
+        private final String targetTopic;
+        private final SubmissionEnvelope submissionEnvelope;
+        private int attempts;
+        private Message<?> message;
+
+        PendingPublish(Archive archive, String targetTopic, SubmissionEnvelope submissionEnvelope) {
+            this.archive = archive;
+            this.targetTopic = targetTopic;
+            this.submissionEnvelope = submissionEnvelope;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings of the deferred dispatch stage.
+ * The settle delay is the time we wait between marking the submittables as dispatched
+ * and publishing the envelope to the archive agent. It can be set per archive, e.g.
+ * usi.archive.dispatcher.deferred.settle-delay.Ena=5000
+ * A failed publish is retried up to maxAttempts times, waiting initialBackoff doubled on every attempt,
+ * up to maxBackoff. Dispatched submittables whose publish has not happened after overdueAfter, e.g. because
+ * the process was restarted, are set back to submitted and dispatched again, so overdueAfter must be
+ * longer than the settle delay and all the backoffs together.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Component
+@ConfigurationProperties(prefix = "usi.archive.dispatcher.deferred")
+class DeferredDispatchProperties {
+    private long defaultSettleDelay = 10000;
+    private Map<String, Long> settleDelay = new HashMap<>();
+    private int poolSize = 4;
+    private int maxAttempts = 5;
+    private long initialBackoff = 10000;
+    private long maxBackoff = 300000;
+    private long overdueAfter = 1800000;
+
+    long settleDelayFor(String archiveName) {
+        return settleDelay.getOrDefault(archiveName, defaultSettleDelay);
+    }
+
+    long backoffFor(int failedAttempts) {
+        long backoff = initialBackoff << Math.min(failedAttempts - 1, 30);
+        return Math.min(backoff, maxBackoff);
+    }
+}
@@ -0,0 +1,26 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the dispatch trigger coalescing.
+ * Triggers for the same submission arriving within the window (in milliseconds) are collapsed into one evaluation.
+ * A window of 0 turns coalescing off, which is the default: the coalesced triggers are only kept in memory after
+ * their messages are acknowledged, so the triggers waiting for their window are lost if the application stops.
+ * The scheduler pool only closes the windows, the evaluations are handed over to the dispatch pool, which hands
+ * them over to the dispatch partitions. Without partitioning the evaluations run on the dispatch pool.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Component
+@ConfigurationProperties(prefix = "usi.archive.dispatcher.coalescing")
+class DispatchCoalescingProperties {
+    private long window = 0;
+    private int poolSize = 2;
+    private int dispatchPoolSize = 4;
+}
@@ -0,0 +1,64 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.subs.data.status.ProcessingStatusEnum;
+import uk.ac.ebi.subs.progressmonitor.SubmissionStatusCounter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks the dispatch lane of a submission from the number of its items still waiting to be dispatched,
+ * so large submissions do not hold up the consumers of small ones.
+ * The number of items is read from the status counts of the submission, see {@link SubmissionStatusCounter}.
+ */
+@Component
+public class DispatchLaneAdmission {
+
+    private static final Logger logger = LoggerFactory.getLogger(DispatchLaneAdmission.class);
+
+    private static final List<String> STATUSES_TO_DISPATCH =
+            Arrays.asList(ProcessingStatusEnum.Draft.name(), ProcessingStatusEnum.Submitted.name());
+
+    private SubmissionStatusCounter submissionStatusCounter;
+    private DispatchLaneProperties dispatchLaneProperties;
+
+    public DispatchLaneAdmission(SubmissionStatusCounter submissionStatusCounter,
+                                 DispatchLaneProperties dispatchLaneProperties) {
+        this.submissionStatusCounter = submissionStatusCounter;
+        this.dispatchLaneProperties = dispatchLaneProperties;
+    }
+
+    public boolean isEnabled() {
+        return dispatchLaneProperties.isEnabled();
+    }
+
+    /**
+     * @param submissionId the ID of the submission to dispatch
+     * @return the routing key of the lane the dispatch trigger should go to
+     */
+    public String laneRoutingKeyFor(String submissionId) {
+        long cost = estimateCost(submissionId);
+
+        String laneRoutingKey = cost >= dispatchLaneProperties.getBulkThreshold()
+                ? DispatcherQueueConfig.BULK_DISPATCH_ROUTING_KEY
+                : DispatcherQueueConfig.INTERACTIVE_DISPATCH_ROUTING_KEY;
+
+        logger.debug("Submission {} has {} items to dispatch, routed to {}", submissionId, cost, laneRoutingKey);
+
+        return laneRoutingKey;
+    }
+
+    long estimateCost(String submissionId) {
+        Map<String, Integer> statusSummary = submissionStatusCounter.summariseSubmissionStatus(submissionId);
+
+        return STATUSES_TO_DISPATCH.stream()
+                .map(statusSummary::get)
+                .filter(count -> count != null)
+                .mapToLong(Integer::longValue)
+                .sum();
+    }
+}
@@ -0,0 +1,60 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.subs.processing.SubmissionEnvelope;
+
+/**
+ * Dispatches the submissions whose triggers were admitted to the interactive or bulk lane, each lane on its own
+ * partitions, see {@link DispatcherRabbitBridge#dispatchToArchives(SubmissionEnvelope)}.
+ * Only registered when the lanes are enabled, as their queues are not declared otherwise.
+ * The lanes need coalescing, as it is the only thing that keeps a submission admitted to both lanes from being
+ * evaluated on both at the same time, so the application does not start with lanes but without coalescing.
+ */
+@Component
+@ConditionalOnProperty(name = DispatchLaneProperties.ENABLED_PROPERTY, havingValue = "true")
+public class DispatchLaneListener {
+
+    private DispatcherRabbitBridge dispatcherRabbitBridge;
+    private PartitionedDispatchExecutor interactiveDispatchPartitions;
+    private PartitionedDispatchExecutor bulkDispatchPartitions;
+
+    public DispatchLaneListener(
+            DispatcherRabbitBridge dispatcherRabbitBridge,
+            DispatchTriggerCoalescer dispatchTriggerCoalescer,
+            @Qualifier(DispatchPartitionConfig.INTERACTIVE_PARTITIONS) PartitionedDispatchExecutor interactiveDispatchPartitions,
+            @Qualifier(DispatchPartitionConfig.BULK_PARTITIONS) PartitionedDispatchExecutor bulkDispatchPartitions) {
+        if (!dispatchTriggerCoalescer.isEnabled()) {
+            throw new IllegalStateException("The dispatch lanes (" + DispatchLaneProperties.ENABLED_PROPERTY
+                    + ") need dispatch trigger coalescing, set usi.archive.dispatcher.coalescing.window above 0");
+        }
+
+        this.dispatcherRabbitBridge = dispatcherRabbitBridge;
+        this.interactiveDispatchPartitions = interactiveDispatchPartitions;
+        this.bulkDispatchPartitions = bulkDispatchPartitions;
+    }
+
+    /**
+     * Dispatch a submission whose trigger was admitted to the interactive lane
+     *
+     * @param submissionEnvelope
+     */
+    @RabbitListener(queues = DispatcherQueueConfig.SUBMISSION_DISPATCHER_INTERACTIVE,
+            containerFactory = DispatcherQueueConfig.INTERACTIVE_DISPATCHER_CONTAINER_FACTORY)
+    public void dispatchInteractive(SubmissionEnvelope submissionEnvelope) {
+        dispatcherRabbitBridge.dispatchTrigger(submissionEnvelope, interactiveDispatchPartitions);
+    }
+
+    /**
+     * Dispatch a submission whose trigger was admitted to the bulk lane
+     *
+     * @param submissionEnvelope
+     */
+    @RabbitListener(queues = DispatcherQueueConfig.SUBMISSION_DISPATCHER_BULK,
+            containerFactory = DispatcherQueueConfig.BULK_DISPATCHER_CONTAINER_FACTORY)
+    public void dispatchBulk(SubmissionEnvelope submissionEnvelope) {
+        dispatcherRabbitBridge.dispatchTrigger(submissionEnvelope, bulkDispatchPartitions);
+    }
+}
@@ -0,0 +1,32 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the dispatch lanes.
+ * When enabled, dispatch triggers are routed to the bulk lane if the submission has at least bulkThreshold items
+ * waiting to be dispatched, to the interactive lane otherwise. Each lane has its own number of consumers and
+ * its own dispatch partitions, with 0 partitions a lane dispatches on its listener threads.
+ * A submission can move from one lane to the other as it is dispatched, so the lanes need coalescing to never
+ * evaluate a submission on both lanes at the same time, the application does not start otherwise.
+ * The lane queues and their consumers are only declared when the lanes are enabled.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Component
+@ConfigurationProperties(prefix = "usi.archive.dispatcher.lanes")
+class DispatchLaneProperties {
+    static final String ENABLED_PROPERTY = "usi.archive.dispatcher.lanes.enabled";
+
+    private boolean enabled = false;
+    private int bulkThreshold = 10000;
+    private int interactiveConsumers = 4;
+    private int bulkConsumers = 1;
+    private int interactivePartitions = 0;
+    private int bulkPartitions = 0;
+}
@@ -0,0 +1,78 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.subs.data.component.Archive;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Timers and counters for the stages of a dispatch, published on the actuator metrics endpoint.
+ *
+ * Metrics are named dispatcher.[stage].[archive], stages that run before the submittables are split by archive
+ * use {@link #ALL_ARCHIVES}. Each timer also keeps a histogram of its durations.
+ */
+@Component
+public class DispatchMetrics {
+
+    public static final String ALL_ARCHIVES = "all";
+
+    public static final String COMPLETION_CHECK = "completion-check";
+    public static final String SUMMARISE_DATA_TYPES = "summarise-data-types";
+    public static final String SUBMITTABLE_FETCH = "submittable-fetch";
+    public static final String REF_RESOLUTION = "ref-resolution";
+    public static final String STATUS_UPDATE = "status-update";
+    public static final String SAMPLE_INSERTION = "sample-insertion";
+    public static final String FILE_INSERTION = "file-insertion";
+    public static final String SERIALIZATION = "serialization";
+    public static final String PUBLISH = "publish";
+
+    private static final String PREFIX = "dispatcher";
+
+    private MetricRegistry metricRegistry;
+
+    public DispatchMetrics(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    public void time(String stage, String archive, Runnable runnable) {
+        time(stage, archive, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    public <T> T time(String stage, String archive, Supplier<T> supplier) {
+        long start = System.nanoTime();
+        try {
+            return supplier.get();
+        } finally {
+            metricRegistry.timer(MetricRegistry.name(PREFIX, stage, archive))
+                    .update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void submittablesDispatched(Archive archive, long count) {
+        metricRegistry.counter(MetricRegistry.name(PREFIX, "submittables", "dispatched", archive.name())).inc(count);
+        metricRegistry.histogram(MetricRegistry.name(PREFIX, "envelope", "size", archive.name())).update(count);
+    }
+
+    public void submittableBlocked(Archive archive) {
+        metricRegistry.counter(MetricRegistry.name(PREFIX, "submittables", "blocked", archive.name())).inc();
+    }
+
+    public void partitionGauges(String executorName, int partitions, IntUnaryOperator queueDepth) {
+        metricRegistry.remove(MetricRegistry.name(PREFIX, "partitions", executorName, "count"));
+        metricRegistry.register(MetricRegistry.name(PREFIX, "partitions", executorName, "count"), (Gauge<Integer>) () -> partitions);
+
+        for (int i = 0; i < partitions; i++) {
+            final int partition = i;
+            String name = MetricRegistry.name(PREFIX, "partitions", executorName, String.valueOf(partition), "queue-depth");
+            metricRegistry.remove(name);
+            metricRegistry.register(name, (Gauge<Integer>) () -> queueDepth.applyAsInt(partition));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The partitioned executors of the dispatcher queue and of the dispatch lanes.
+ * Each lane has its own partitions, so the dispatch of large submissions on the bulk lane never queues up
+ * in front of the small submissions of the interactive lane. The lane partitions are only created when the
+ * lanes are enabled.
+ */
+@Configuration
+public class DispatchPartitionConfig {
+
+    static final String DISPATCHER_PARTITIONS = "dispatcherPartitions";
+    static final String INTERACTIVE_PARTITIONS = "interactiveDispatchPartitions";
+    static final String BULK_PARTITIONS = "bulkDispatchPartitions";
+
+    @Bean(name = DISPATCHER_PARTITIONS)
+    PartitionedDispatchExecutor dispatcherPartitions(DispatchPartitionProperties dispatchPartitionProperties,
+                                                     DispatchMetrics dispatchMetrics) {
+        return new PartitionedDispatchExecutor("main", dispatchPartitionProperties.getPartitions(), dispatchMetrics);
+    }
+
+    @Bean(name = INTERACTIVE_PARTITIONS)
+    @ConditionalOnProperty(name = DispatchLaneProperties.ENABLED_PROPERTY, havingValue = "true")
+    PartitionedDispatchExecutor interactiveDispatchPartitions(DispatchLaneProperties dispatchLaneProperties,
+                                                              DispatchMetrics dispatchMetrics) {
+        return new PartitionedDispatchExecutor("interactive", dispatchLaneProperties.getInteractivePartitions(), dispatchMetrics);
+    }
+
+    @Bean(name = BULK_PARTITIONS)
+    @ConditionalOnProperty(name = DispatchLaneProperties.ENABLED_PROPERTY, havingValue = "true")
+    PartitionedDispatchExecutor bulkDispatchPartitions(DispatchLaneProperties dispatchLaneProperties,
+                                                       DispatchMetrics dispatchMetrics) {
+        return new PartitionedDispatchExecutor("bulk", dispatchLaneProperties.getBulkPartitions(), dispatchMetrics);
+    }
+}
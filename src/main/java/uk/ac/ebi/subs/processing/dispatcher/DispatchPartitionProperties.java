@@ -0,0 +1,25 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the dispatcher queue consumers.
+ * The dispatch of a submission always runs on the partition its ID hashes to, so a submission is evaluated by
+ * one thread at a time while different submissions are evaluated in parallel.
+ * With 0 partitions the dispatch runs on the listener thread.
+ * Without coalescing each consumer waits for the dispatch it handed over, so there should be at least as many
+ * consumers as partitions for all of them to be busy.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Component
+@ConfigurationProperties(prefix = "usi.archive.dispatcher.partitioning")
+class DispatchPartitionProperties {
+    private int partitions = 0;
+    private int consumers = 1;
+}
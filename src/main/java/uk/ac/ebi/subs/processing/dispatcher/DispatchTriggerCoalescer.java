@@ -0,0 +1,194 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitMessagingTemplate;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.subs.messaging.Exchanges;
+import uk.ac.ebi.subs.messaging.Topics;
+import uk.ac.ebi.subs.processing.SubmissionEnvelope;
+
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Collapses the dispatch triggers of a submission that arrive within a short window.
+ *
+ * The first trigger of a submission schedules an evaluation at the end of the window, later triggers only replace
+ * the pending envelope, so the evaluation runs once per burst with the newest envelope (and its JWT token).
+ * The scheduler only hands the evaluation over to the dispatch pool and does not wait for it, so the dispatch
+ * never runs on its threads, even without dispatch partitions.
+ *
+ * A submission has at most one evaluation in flight. Triggers arriving while it runs are kept and evaluated
+ * once it has finished. The trigger messages are acknowledged before the evaluation, so the trigger of a failed
+ * evaluation is published again, unless a newer trigger of the submission is already waiting. Triggers still
+ * waiting when the application stops are lost, which is why coalescing is off by default.
+ */
+@Component
+public class DispatchTriggerCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(DispatchTriggerCoalescer.class);
+
+    private final Map<String, SubmissionTriggers> triggers = new ConcurrentHashMap<>();
+
+    private RabbitMessagingTemplate rabbitMessagingTemplate;
+    private DispatchCoalescingProperties dispatchCoalescingProperties;
+    private ThreadPoolTaskScheduler taskScheduler;
+    private ThreadPoolTaskExecutor dispatchExecutor;
+
+    public DispatchTriggerCoalescer(RabbitMessagingTemplate rabbitMessagingTemplate, MessageConverter messageConverter,
+                                    DispatchCoalescingProperties dispatchCoalescingProperties) {
+        this.rabbitMessagingTemplate = rabbitMessagingTemplate;
+        this.rabbitMessagingTemplate.setMessageConverter(messageConverter);
+        this.dispatchCoalescingProperties = dispatchCoalescingProperties;
+
+        this.taskScheduler = new ThreadPoolTaskScheduler();
+        this.taskScheduler.setPoolSize(dispatchCoalescingProperties.getPoolSize());
+        this.taskScheduler.setThreadNamePrefix("dispatch-coalescer-");
+        this.taskScheduler.setWaitForTasksToCompleteOnShutdown(true);
+        this.taskScheduler.setAwaitTerminationSeconds(60);
+        this.taskScheduler.initialize();
+
+        this.dispatchExecutor = new ThreadPoolTaskExecutor();
+        this.dispatchExecutor.setCorePoolSize(dispatchCoalescingProperties.getDispatchPoolSize());
+        this.dispatchExecutor.setMaxPoolSize(dispatchCoalescingProperties.getDispatchPoolSize());
+        this.dispatchExecutor.setThreadNamePrefix("dispatch-coalesced-");
+        this.dispatchExecutor.setWaitForTasksToCompleteOnShutdown(true);
+        this.dispatchExecutor.setAwaitTerminationSeconds(60);
+        this.dispatchExecutor.initialize();
+    }
+
+    public boolean isEnabled() {
+        return dispatchCoalescingProperties.getWindow() > 0;
+    }
+
+    /**
+     * Register a dispatch trigger
+     *
+     * @param submissionEnvelope the envelope of the trigger
+     * @param dispatch           starts the evaluation once the window of the submission closes,
+     *                           the future completes when the evaluation has finished.
+     *                           The dispatch of the newest trigger is used, as triggers may come from different lanes
+     */
+    public void submit(SubmissionEnvelope submissionEnvelope, Function<SubmissionEnvelope, CompletableFuture<?>> dispatch) {
+        final String submissionId = submissionEnvelope.getSubmission().getId();
+
+        triggers.compute(submissionId, (id, submissionTriggers) -> {
+            if (submissionTriggers == null) {
+                submissionTriggers = new SubmissionTriggers();
+                scheduleEvaluation(submissionId);
+            } else if (submissionTriggers.inFlight != null) {
+                logger.debug("dispatch trigger of submission {} waits for the running evaluation", submissionId);
+            } else {
+                logger.debug("dispatch trigger coalesced for submission {}", submissionId);
+            }
+
+            submissionTriggers.pending = submissionEnvelope;
+            submissionTriggers.pendingDispatch = dispatch;
+            return submissionTriggers;
+        });
+    }
+
+    int pendingTriggerCount() {
+        return triggers.size();
+    }
+
+    void evaluate(String submissionId) {
+        SubmissionTriggers submissionTriggers = triggers.computeIfPresent(submissionId, (id, current) -> {
+            current.inFlight = current.pending;
+            current.inFlightDispatch = current.pendingDispatch;
+            current.pending = null;
+            current.pendingDispatch = null;
+            return current;
+        });
+
+        if (submissionTriggers == null || submissionTriggers.inFlight == null) {
+            return;
+        }
+
+        final SubmissionEnvelope latestTrigger = submissionTriggers.inFlight;
+        final Function<SubmissionEnvelope, CompletableFuture<?>> dispatch = submissionTriggers.inFlightDispatch;
+
+        try {
+            dispatchExecutor.execute(() -> startEvaluation(submissionId, latestTrigger, dispatch));
+        } catch (RuntimeException e) {
+            finished(submissionId, latestTrigger, e);
+        }
+    }
+
+    private void startEvaluation(String submissionId, SubmissionEnvelope trigger,
+                                 Function<SubmissionEnvelope, CompletableFuture<?>> dispatch) {
+        CompletableFuture<?> evaluation;
+        try {
+            evaluation = dispatch.apply(trigger);
+        } catch (RuntimeException e) {
+            evaluation = CompletableFuture.failedFuture(e);
+        }
+
+        evaluation.whenComplete((result, failure) -> finished(submissionId, trigger, failure));
+    }
+
+    private void finished(String submissionId, SubmissionEnvelope evaluatedTrigger, Throwable failure) {
+        SubmissionTriggers submissionTriggers = triggers.computeIfPresent(submissionId, (id, current) -> {
+            current.inFlight = null;
+            current.inFlightDispatch = null;
+
+            if (current.pending == null) {
+                return null;
+            }
+
+            scheduleEvaluation(submissionId);
+            return current;
+        });
+
+        if (failure == null) {
+            return;
+        }
+
+        if (submissionTriggers != null) {
+            logger.error("dispatch failed for submission {}, a newer trigger is waiting", submissionId, failure);
+        } else {
+            logger.error("dispatch failed for submission {}, publishing its trigger again", submissionId, failure);
+            republish(submissionId, evaluatedTrigger);
+        }
+    }
+
+    private void scheduleEvaluation(String submissionId) {
+        taskScheduler.schedule(
+                () -> evaluate(submissionId),
+                new Date(System.currentTimeMillis() + dispatchCoalescingProperties.getWindow())
+        );
+    }
+
+    private void republish(String submissionId, SubmissionEnvelope trigger) {
+        try {
+            rabbitMessagingTemplate.convertAndSend(Exchanges.SUBMISSIONS, Topics.EVENT_SUBMISSION_PROCESSING_UPDATED, trigger);
+        } catch (RuntimeException e) {
+            logger.error("could not publish the dispatch trigger of submission {} again", submissionId, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        taskScheduler.shutdown();
+        dispatchExecutor.shutdown();
+    }
+
+    /**
+     * The newest trigger of a submission not yet evaluated, and the trigger being evaluated if any,
+     * each with the dispatch it is evaluated with
+     */
+    private static class SubmissionTriggers {
+        private SubmissionEnvelope pending;
+        private Function<SubmissionEnvelope, CompletableFuture<?>> pendingDispatch;
+        private SubmissionEnvelope inFlight;
+        private Function<SubmissionEnvelope, CompletableFuture<?>> inFlightDispatch;
+    }
+}
@@ -4,9 +4,15 @@ import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import uk.ac.ebi.subs.messaging.Queues;
+import uk.ac.ebi.subs.processing.initialsubmissionprocessing.SubmissionSubmittedPipeline;
+import uk.ac.ebi.subs.processing.initialsubmissionprocessing.SubmittedPipelineProperties;
 
 /**
  * This configuration class responsible for the RabbitMQ configuration for the dispatcher service.
@@ -14,6 +20,29 @@ import uk.ac.ebi.subs.messaging.Queues;
 @Configuration
 public class DispatcherQueueConfig {
 
+    static final String DISPATCHER_CONTAINER_FACTORY = "dispatcherListenerContainerFactory";
+    static final String INTERACTIVE_DISPATCHER_CONTAINER_FACTORY = "interactiveDispatcherListenerContainerFactory";
+    static final String BULK_DISPATCHER_CONTAINER_FACTORY = "bulkDispatcherListenerContainerFactory";
+
+    static final String SUBMISSION_DISPATCHER_INTERACTIVE = "usi-submission-dispatcher-interactive";
+    static final String SUBMISSION_DISPATCHER_BULK = "usi-submission-dispatcher-bulk";
+
+    static final String INTERACTIVE_DISPATCH_ROUTING_KEY = "usi.submission.dispatch.interactive";
+    static final String BULK_DISPATCH_ROUTING_KEY = "usi.submission.dispatch.bulk";
+
+    /**
+     * Listener container factory of the dispatcher queue, with its own number of consumers.
+     * Each submission is still dispatched serially, see {@link PartitionedDispatchExecutor}.
+     * @return
+     */
+    @Bean(name = DISPATCHER_CONTAINER_FACTORY)
+    SimpleRabbitListenerContainerFactory dispatcherListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            DispatchPartitionProperties dispatchPartitionProperties) {
+        return listenerContainerFactory(configurer, connectionFactory, dispatchPartitionProperties.getConsumers());
+    }
+
     /**
      * Queue for submissions to be checked for dispatch to archive agents
      * @return
@@ -29,14 +58,81 @@ public class DispatcherQueueConfig {
     }
 
     /**
-     * Queue for submissions to be checked to see if they need supporting info
+     * Queue for submissions to be checked to see if they need supporting info, only declared when the
+     * {@link SubmissionSubmittedPipeline} is disabled
      * @return
      */
-    @Bean Queue onSubmitCheckForSupportingInfoQueue() {return Queues.buildQueueWithDlx(Queues.SUBMISSION_SUBMITTED_CHECK_SUPPORTING_INFO); }
+    @Bean
+    @ConditionalOnProperty(name = SubmittedPipelineProperties.ENABLED_PROPERTY, havingValue = "false", matchIfMissing = true)
+    Queue onSubmitCheckForSupportingInfoQueue() {return Queues.buildQueueWithDlx(Queues.SUBMISSION_SUBMITTED_CHECK_SUPPORTING_INFO); }
 
 
     @Bean
+    @ConditionalOnProperty(name = SubmittedPipelineProperties.ENABLED_PROPERTY, havingValue = "false", matchIfMissing = true)
     Binding suppInfoBinding(Queue onSubmitCheckForSupportingInfoQueue, TopicExchange submissionExchange) {
         return BindingBuilder.bind(onSubmitCheckForSupportingInfoQueue).to(submissionExchange).with(Queues.SUBMISSION_SUBMITTED_ROUTING_KEY);
     }
+
+    /**
+     * Queue for dispatch triggers of submissions with few items waiting to be dispatched, only declared when the
+     * lanes are enabled
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(name = DispatchLaneProperties.ENABLED_PROPERTY, havingValue = "true")
+    Queue interactiveDispatcherQueue() {
+        return Queues.buildQueueWithDlx(SUBMISSION_DISPATCHER_INTERACTIVE);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = DispatchLaneProperties.ENABLED_PROPERTY, havingValue = "true")
+    Binding interactiveDispatcherBinding(Queue interactiveDispatcherQueue, TopicExchange submissionExchange) {
+        return BindingBuilder.bind(interactiveDispatcherQueue).to(submissionExchange).with(INTERACTIVE_DISPATCH_ROUTING_KEY);
+    }
+
+    /**
+     * Queue for dispatch triggers of submissions with many items waiting to be dispatched, only declared when the
+     * lanes are enabled
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(name = DispatchLaneProperties.ENABLED_PROPERTY, havingValue = "true")
+    Queue bulkDispatcherQueue() {
+        return Queues.buildQueueWithDlx(SUBMISSION_DISPATCHER_BULK);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = DispatchLaneProperties.ENABLED_PROPERTY, havingValue = "true")
+    Binding bulkDispatcherBinding(Queue bulkDispatcherQueue, TopicExchange submissionExchange) {
+        return BindingBuilder.bind(bulkDispatcherQueue).to(submissionExchange).with(BULK_DISPATCH_ROUTING_KEY);
+    }
+
+    @Bean(name = INTERACTIVE_DISPATCHER_CONTAINER_FACTORY)
+    @ConditionalOnProperty(name = DispatchLaneProperties.ENABLED_PROPERTY, havingValue = "true")
+    SimpleRabbitListenerContainerFactory interactiveDispatcherListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            DispatchLaneProperties dispatchLaneProperties) {
+        return listenerContainerFactory(configurer, connectionFactory, dispatchLaneProperties.getInteractiveConsumers());
+    }
+
+    @Bean(name = BULK_DISPATCHER_CONTAINER_FACTORY)
+    @ConditionalOnProperty(name = DispatchLaneProperties.ENABLED_PROPERTY, havingValue = "true")
+    SimpleRabbitListenerContainerFactory bulkDispatcherListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            DispatchLaneProperties dispatchLaneProperties) {
+        return listenerContainerFactory(configurer, connectionFactory, dispatchLaneProperties.getBulkConsumers());
+    }
+
+    private SimpleRabbitListenerContainerFactory listenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            int consumers) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setConcurrentConsumers(consumers);
+        factory.setMaxConcurrentConsumers(consumers);
+        return factory;
+    }
 }
@@ -4,6 +4,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.rabbit.core.RabbitMessagingTemplate;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.stereotype.Service;
@@ -14,8 +15,6 @@ import uk.ac.ebi.subs.messaging.Queues;
 import uk.ac.ebi.subs.messaging.Topics;
 import uk.ac.ebi.subs.processing.SubmissionEnvelope;
 
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -33,29 +32,46 @@ public class DispatcherRabbitBridge {
     private DispatcherService dispatcherService;
     private SubmissionCompletionService submissionCompletionService;
     private DispatcherRoutingKeyProperties dispatcherRoutingKeyProperties;
+    private DeferredArchiveDispatcher deferredArchiveDispatcher;
+    private DispatchTriggerCoalescer dispatchTriggerCoalescer;
+    private DispatchMetrics dispatchMetrics;
+    private ArchiveDispatchExecutor archiveDispatchExecutor;
+    private PartitionedDispatchExecutor dispatcherPartitions;
+    private DispatchLaneAdmission dispatchLaneAdmission;
 
     public DispatcherRabbitBridge(
             RabbitMessagingTemplate rabbitMessagingTemplate,
             MessageConverter messageConverter,
             DispatcherService dispatcherService,
             SubmissionCompletionService submissionCompletionService,
-            DispatcherRoutingKeyProperties dispatcherRoutingKeyProperties
+            DispatcherRoutingKeyProperties dispatcherRoutingKeyProperties,
+            DeferredArchiveDispatcher deferredArchiveDispatcher,
+            DispatchTriggerCoalescer dispatchTriggerCoalescer,
+            DispatchMetrics dispatchMetrics,
+            ArchiveDispatchExecutor archiveDispatchExecutor,
+            @Qualifier(DispatchPartitionConfig.DISPATCHER_PARTITIONS) PartitionedDispatchExecutor dispatcherPartitions,
+            DispatchLaneAdmission dispatchLaneAdmission
     ) {
         this.rabbitMessagingTemplate = rabbitMessagingTemplate;
         this.rabbitMessagingTemplate.setMessageConverter(messageConverter);
         this.dispatcherService = dispatcherService;
         this.submissionCompletionService = submissionCompletionService;
         this.dispatcherRoutingKeyProperties = dispatcherRoutingKeyProperties;
+        this.deferredArchiveDispatcher = deferredArchiveDispatcher;
+        this.dispatchTriggerCoalescer = dispatchTriggerCoalescer;
+        this.dispatchMetrics = dispatchMetrics;
+        this.archiveDispatchExecutor = archiveDispatchExecutor;
+        this.dispatcherPartitions = dispatcherPartitions;
+        this.dispatchLaneAdmission = dispatchLaneAdmission;
     }
 
 
     /**
-     * Determine what supporting information is required from the archives
+     * Ask the archives for the supporting information the submission needs
      *
      * @param submissionEnvelopeSent that contains the submission object
      */
-    @RabbitListener(queues = Queues.SUBMISSION_SUBMITTED_CHECK_SUPPORTING_INFO)
-    public void checkSupportingInfoRequirement(SubmissionEnvelope submissionEnvelopeSent) {
+    public void requestSupportingInformation(SubmissionEnvelope submissionEnvelopeSent) {
         Submission submission = submissionEnvelopeSent.getSubmission();
 
         logger.info("checkSupportingInfoRequirement {}", submission);
@@ -86,17 +102,55 @@ public class DispatcherRabbitBridge {
      * For a submission, assess which archives can be sent information for archiving. Send them the information
      * as a message
      *
+     * The submittables are marked as dispatched here, the envelopes are published by the {@link DeferredArchiveDispatcher}
+     * after the archive's settle delay.
+     * When coalescing is enabled, triggers of the same submission within the coalescing window are evaluated once.
+     * The archives are dispatched independently of each other, concurrently when a parallel pool is configured.
+     * When lanes are enabled, the trigger is only admitted here and re-published to the interactive or bulk lane
+     * depending on the size of the submission, see {@link DispatchLaneListener}.
+     * When partitioning is enabled, the dispatch runs on the partition of the submission, so the many consumers
+     * of the queue never evaluate the same submission at the same time. Each lane has its own partitions.
+     *
      * @param submissionEnvelope
      */
-    @RabbitListener(queues = Queues.SUBMISSION_DISPATCHER)
-    public void dispatchToArchives(SubmissionEnvelope submissionEnvelope) throws InterruptedException {
+    @RabbitListener(queues = Queues.SUBMISSION_DISPATCHER, containerFactory = DispatcherQueueConfig.DISPATCHER_CONTAINER_FACTORY)
+    public void dispatchToArchives(SubmissionEnvelope submissionEnvelope) {
+        if (dispatchLaneAdmission.isEnabled()) {
+            admitToLane(submissionEnvelope);
+        } else {
+            dispatchTrigger(submissionEnvelope, dispatcherPartitions);
+        }
+    }
+
+    void admitToLane(SubmissionEnvelope submissionEnvelope) {
+        String laneRoutingKey = dispatchLaneAdmission.laneRoutingKeyFor(submissionEnvelope.getSubmission().getId());
+
+        rabbitMessagingTemplate.convertAndSend(Exchanges.SUBMISSIONS, laneRoutingKey, submissionEnvelope);
+    }
+
+    void dispatchTrigger(SubmissionEnvelope submissionEnvelope, PartitionedDispatchExecutor partitions) {
+        final String submissionId = submissionEnvelope.getSubmission().getId();
+
+        if (dispatchTriggerCoalescer.isEnabled()) {
+            dispatchTriggerCoalescer.submit(submissionEnvelope,
+                    trigger -> partitions.submit(submissionId, () -> dispatch(trigger)));
+        } else {
+            partitions.execute(submissionId, () -> dispatch(submissionEnvelope));
+        }
+    }
+
+    void dispatch(SubmissionEnvelope submissionEnvelope) {
         uk.ac.ebi.subs.data.Submission submission = submissionEnvelope.getSubmission();
         logger.debug("dispatchToArchives {}", submission);
 
         final String submissionId = submission.getId();
 
-        if (submissionCompletionService.allSubmittablesProcessingFinished(submissionId)){
-            submissionCompletionService.markSubmissionWithFinishedStatus(submissionId);
+        boolean allSubmittablesProcessingFinished = dispatchMetrics.time(
+                DispatchMetrics.COMPLETION_CHECK, DispatchMetrics.ALL_ARCHIVES,
+                () -> submissionCompletionService.allSubmittablesProcessingFinished(submissionId)
+        );
+
+        if (allSubmittablesProcessingFinished && submissionCompletionService.markSubmissionWithFinishedStatus(submissionId)) {
             logger.debug("submission completed {}", submission);
             return;
         }
@@ -114,42 +168,18 @@ public class DispatcherRabbitBridge {
             }
         }
 
-        for (Map.Entry<Archive, SubmissionEnvelope> entry : readyToDispatch.entrySet()) {
-
-            Archive archive = entry.getKey();
-            SubmissionEnvelope submissionEnvelopeToTransmit = entry.getValue();
-
+        archiveDispatchExecutor.dispatchEach(submissionId, readyToDispatch, (archive, submissionEnvelopeToTransmit) -> {
             if (!archiveTopic.containsKey(archive.name())) {
                 throw new IllegalStateException("Dispatcher does not have topic mapping for archive " + archive + ". Processing submission " + submissionId);
             }
 
             String targetTopic = archiveTopic.get(archive.name());
 
-            dispatcherService.updateSubmittablesStatusToSubmitted(archive, submissionEnvelopeToTransmit);
-
-            Thread.sleep(10000);
-
-            dispatcherService.insertReferencedSamples(submissionEnvelopeToTransmit);
+            dispatchMetrics.time(DispatchMetrics.STATUS_UPDATE, archive.name(),
+                    () -> dispatcherService.updateSubmittablesStatusToSubmitted(archive, submissionEnvelopeToTransmit));
+            dispatchMetrics.submittablesDispatched(archive, submissionEnvelopeToTransmit.allSubmissionItemsStream().count());
 
-            dispatcherService.insertUploadedFiles(submissionEnvelopeToTransmit);
-
-            logger.info("Submission {} to {} started", submissionId, targetTopic);
-            LocalDateTime submissionStart = LocalDateTime.now();
-            rabbitMessagingTemplate.convertAndSend(Exchanges.SUBMISSIONS, targetTopic, submissionEnvelopeToTransmit);
-            LocalDateTime submissionEnd = LocalDateTime.now();
-            logger.info("sent submission {} to {}", submissionId, targetTopic);
-            logElapsedTimeofSendingASubmission(submissionStart, submissionEnd);
-        }
-    }
-
-    private void logElapsedTimeofSendingASubmission(LocalDateTime submissionStart, LocalDateTime submissionEnd) {
-        long elapsedTimeHours = ChronoUnit.HOURS.between(submissionEnd, submissionStart);
-        long elapsedTimeMinutes = ChronoUnit.MINUTES.between(submissionEnd, submissionStart);
-        long elapsedTimeSeconds = ChronoUnit.SECONDS.between(submissionEnd, submissionStart);
-        long elapsedTimeMillis = Math.abs(ChronoUnit.MILLIS.between(submissionEnd, submissionStart));
-        logger.info("Submission took {} to send",
-                String.format("%02d:%02d:%02d:%02d",
-                    elapsedTimeHours, elapsedTimeMinutes, elapsedTimeSeconds, elapsedTimeMillis)
-        );
+            deferredArchiveDispatcher.schedule(archive, targetTopic, submissionEnvelopeToTransmit);
+        });
     }
-}
\ No newline at end of file
+}
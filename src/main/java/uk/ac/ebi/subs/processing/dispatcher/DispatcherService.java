@@ -4,6 +4,8 @@ import uk.ac.ebi.subs.data.Submission;
 import uk.ac.ebi.subs.data.component.Archive;
 import uk.ac.ebi.subs.processing.SubmissionEnvelope;
 
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -17,6 +19,12 @@ public interface DispatcherService {
 
     void updateSubmittablesStatusToSubmitted(Archive archive, SubmissionEnvelope submissionEnvelope);
 
+    void markSubmittablesAsPublished(Archive archive, SubmissionEnvelope submissionEnvelope);
+
+    void markSubmittablesAsErrored(Archive archive, SubmissionEnvelope submissionEnvelope);
+
+    List<String> revertOverdueDispatches(Date dispatchedBefore);
+
     void insertReferencedSamples(SubmissionEnvelope submissionEnvelope);
 
     void insertUploadedFiles(SubmissionEnvelope submissionEnvelope);
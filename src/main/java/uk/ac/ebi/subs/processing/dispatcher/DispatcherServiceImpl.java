@@ -3,10 +3,13 @@ package uk.ac.ebi.subs.processing.dispatcher;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 import uk.ac.ebi.subs.data.Submission;
-import uk.ac.ebi.subs.data.component.AbstractSubsRef;
 import uk.ac.ebi.subs.data.component.Archive;
 import uk.ac.ebi.subs.data.component.SampleRef;
 import uk.ac.ebi.subs.data.component.SampleUse;
@@ -16,22 +19,23 @@ import uk.ac.ebi.subs.data.submittable.Assay;
 import uk.ac.ebi.subs.data.submittable.AssayData;
 import uk.ac.ebi.subs.data.submittable.Sample;
 import uk.ac.ebi.subs.data.submittable.Submittable;
-import uk.ac.ebi.subs.error.EntityNotFoundException;
 import uk.ac.ebi.subs.processing.SubmissionEnvelope;
 import uk.ac.ebi.subs.processing.fileupload.UploadedFile;
-import uk.ac.ebi.subs.repository.RefLookupService;
+import uk.ac.ebi.subs.progressmonitor.SubmissionStatusCounter;
 import uk.ac.ebi.subs.repository.config.SubmittableConfig;
 import uk.ac.ebi.subs.repository.model.DataType;
+import uk.ac.ebi.subs.repository.model.ProcessingStatus;
 import uk.ac.ebi.subs.repository.model.StoredSubmittable;
 import uk.ac.ebi.subs.repository.model.fileupload.File;
-import uk.ac.ebi.subs.repository.repos.fileupload.FileRepository;
-import uk.ac.ebi.subs.repository.repos.status.ProcessingStatusBulkOperations;
 import uk.ac.ebi.subs.repository.repos.status.ProcessingStatusRepository;
 import uk.ac.ebi.subs.repository.repos.submittables.SubmittableRepository;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -40,12 +44,20 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
 @Service
 public class DispatcherServiceImpl implements DispatcherService {
 
 
     private static final Logger logger = LoggerFactory.getLogger(DispatcherServiceImpl.class);
 
+    /**
+     * Set on the processing statuses of dispatched submittables until their envelope is published to the archive agent
+     */
+    static final String PUBLISH_PENDING = "publishPending";
+
     @Override
     /**
      * When is a submittable ready for dispatch?
@@ -61,12 +73,16 @@ public class DispatcherServiceImpl implements DispatcherService {
         final String submissionId = submission.getId();
         Map<String, Set<String>> typesAndIdsToConsider = new HashMap<>();
 
-        for (Map.Entry<DataType, Set<String>> es : processingStatusRepository
-                .summariseDataTypesWithSubmittableIds(submissionId, processingStatusesToAllow).entrySet()) {
+        Map<DataType, Set<String>> dataTypesWithSubmittableIds = dispatchMetrics.time(
+                DispatchMetrics.SUMMARISE_DATA_TYPES, DispatchMetrics.ALL_ARCHIVES,
+                () -> processingStatusRepository.summariseDataTypesWithSubmittableIds(submissionId, processingStatusesToAllow)
+        );
+
+        for (Map.Entry<DataType, Set<String>> es : dataTypesWithSubmittableIds.entrySet()) {
             typesAndIdsToConsider.put(es.getKey().getId(), es.getValue());
         }
 
-        Map<Archive, SubmissionEnvelope> readyForDispatch = new HashMap<>();
+        Map<Archive, SubmissionEnvelopeBuilder> readyForDispatch = new HashMap<>();
 
         logger.info("Submission {} has data to process {}", submissionId, typesAndIdsToConsider.keySet());
         for (Map.Entry<String, Set<String>> typeAndIds : typesAndIdsToConsider.entrySet()) {
@@ -76,77 +92,69 @@ public class DispatcherServiceImpl implements DispatcherService {
         Set<Archive> archivesToBlock = new HashSet<>();
 
         //expect many refs to the same thing, e.g. all assays pointing to the same study
-        Map<AbstractSubsRef,StoredSubmittable> refLookupCache = new HashMap<>();
+        RefGraphWalk refGraphWalk = refGraphWalker.newWalk();
 
         for (Map.Entry<String, Set<String>> typeAndIds : typesAndIdsToConsider.entrySet()) {
             String type = typeAndIds.getKey();
 
             if (dataTypeRepositoryMap.containsKey(type)) {
-                SubmittableRepository submittableRepository = dataTypeRepositoryMap.get(type);
-
-                for (String submittableId : typeAndIds.getValue()) {
-                    final Optional<?> submittableById = Optional.ofNullable(submittableRepository.findOne(submittableId));
-                    StoredSubmittable submittable = (StoredSubmittable) submittableById
-                        .orElseThrow(() -> new EntityNotFoundException(
-                            String.format("Submittable entity with ID: %s is not found in the database.", submittableId)));
-                    Archive archive = Archive.valueOf(submittable.getProcessingStatus().getArchive());
-
-                    List<StoredSubmittable> referencedSubmittables = submittable
-                            .refs()
-                            .filter(Objects::nonNull)
-                            .filter(ref -> ref.getAlias() != null || ref.getAccession() != null) //TODO this is because of empty refs as defaults
-                            .map(ref -> lookupRefAndFillInAccession(refLookupCache, ref) )
-                            .filter(Objects::nonNull)
-                            .filter(referencedSubmittable -> !isForSameArchiveAndInSameSubmission(submissionId, archive, referencedSubmittable))
-                            .collect(Collectors.toList());
-
-                    Optional<StoredSubmittable> optionalBlockingSubmittable = referencedSubmittables.stream()
-                            .filter(sub -> !sub.isAccessioned())
-                            .findAny();
-
-                    if (!optionalBlockingSubmittable.isPresent()) {
-                        SubmissionEnvelope submissionEnvelope = readyForDispatch.get(archive);
-                        if (submissionEnvelope == null) {
-                            submissionEnvelope = new SubmissionEnvelope(submission);
-                            readyForDispatch.put(archive, submissionEnvelope);
-                        }
-                        submissionEnvelope.setJWTToken(jwtToken);
-
-                        submissionEnvelopeStuffer.add(submissionEnvelope, submittable);
-                        submissionEnvelopeStuffer.addAll(submissionEnvelope, referencedSubmittables);
-                    }
+                SubmittableRepository<? extends StoredSubmittable> submittableRepository = dataTypeRepositoryMap.get(type);
+
+                submittableBatchLoader.loadPages(submittableRepository, typeAndIds.getValue(), submittables -> {
+                    //lookup and fill in the accessions of everything referenced by this page, transitively
+                    dispatchMetrics.time(DispatchMetrics.REF_RESOLUTION, DispatchMetrics.ALL_ARCHIVES,
+                            () -> refGraphWalk.walkFrom(submittables));
 
-                    if (optionalBlockingSubmittable.isPresent()) {
-                        archivesToBlock.add(archive);
+                    for (StoredSubmittable submittable : submittables) {
+                        assessSubmittable(submission, jwtToken, submittable, refGraphWalk, readyForDispatch, archivesToBlock);
                     }
-                }
+                });
             }
         }
 
+        logger.info("Submission {} reference graph {}", submissionId, refGraphWalk.statistics());
+
         for (Archive archiveToBlock : archivesToBlock) {
             readyForDispatch.remove(archiveToBlock);
         }
 
-        return readyForDispatch;
+        Map<Archive, SubmissionEnvelope> submissionEnvelopes = new HashMap<>();
+        readyForDispatch.forEach((archive, envelopeBuilder) -> submissionEnvelopes.put(archive, envelopeBuilder.build()));
+
+        return submissionEnvelopes;
     }
 
-    private StoredSubmittable lookupRefAndFillInAccession(Map<AbstractSubsRef, StoredSubmittable> refLookupCache, AbstractSubsRef ref) {
-        if (!refLookupCache.containsKey(ref)) {
-            refLookupCache.put(ref, refLookupService.lookupRef(ref));
-        }
+    private void assessSubmittable(Submission submission, String jwtToken, StoredSubmittable submittable,
+                                   RefGraphWalk refGraphWalk,
+                                   Map<Archive, SubmissionEnvelopeBuilder> readyForDispatch, Set<Archive> archivesToBlock) {
+        final String submissionId = submission.getId();
+        Archive archive = Archive.valueOf(submittable.getProcessingStatus().getArchive());
 
-        StoredSubmittable ss = refLookupCache.get(ref);
-        if (ss != null && !ref.isAccessioned() && ss.isAccessioned()){
-            ref.setAccession(ss.getAccession());
-        }
+        List<StoredSubmittable> referencedSubmittables = submittable
+                .refs()
+                .filter(Objects::nonNull)
+                .filter(ref -> ref.getAlias() != null || ref.getAccession() != null) //TODO this is because of empty refs as defaults
+                .map(refGraphWalk::resolve)
+                .filter(Objects::nonNull)
+                .filter(referencedSubmittable -> !isForSameArchiveAndInSameSubmission(submissionId, archive, referencedSubmittable))
+                .collect(Collectors.toList());
 
-        //recursively lookup and fill in the accession for submittables referenced by this submittable
-        ss.refs()
-            .filter(Objects::nonNull)
-            .filter(r -> r.getAlias() != null || r.getAccession() != null)
-            .forEach(r -> lookupRefAndFillInAccession(refLookupCache, r) );
+        Optional<StoredSubmittable> optionalBlockingSubmittable = referencedSubmittables.stream()
+                .filter(sub -> !sub.isAccessioned())
+                .findAny();
 
-        return ss;
+        if (!optionalBlockingSubmittable.isPresent()) {
+            readyForDispatch
+                    .computeIfAbsent(archive, a -> submissionEnvelopeStuffer.builder(submission))
+                    .jwtToken(jwtToken)
+                    .add(submittable)
+                    .addAll(referencedSubmittables);
+        }
+
+        if (optionalBlockingSubmittable.isPresent()) {
+            archivesToBlock.add(archive);
+            dispatchMetrics.submittableBlocked(archive);
+        }
     }
 
     private boolean isForSameArchiveAndInSameSubmission(String submissionId, Archive archive, StoredSubmittable sub) {
@@ -176,44 +184,208 @@ public class DispatcherServiceImpl implements DispatcherService {
         return maps;
     }
 
+    /**
+     * Mark the submittables of an envelope as dispatched, with one update per page of IDs and status they can be
+     * dispatched from. The status counts of the submission are changed by the number of processing statuses each
+     * update changed.
+     */
     @Override
     public void updateSubmittablesStatusToSubmitted(Archive archive, SubmissionEnvelope submissionEnvelope) {
         String submissionId = submissionEnvelope.getSubmission().getId();
 
-        Stream<Submittable> submittables = submissionEnvelope
+        List<String> submittableIds = submissionEnvelope
                 .allSubmissionItemsStream()
-                ;
-//                .filter(item -> archive.equals(item.getArchive()));
-
-        processingStatusBulkOperations.updateProcessingStatus(
-                processingStatusesToAllow,
-                submittables,
-                submissionEnvelope.getSubmission(),
-                ProcessingStatusEnum.Dispatched
-        );
+//                .filter(item -> archive.equals(item.getArchive()))
+                .map(Submittable::getId)
+                .collect(Collectors.toList());
+
+        submissionStatusCounter.countStatusWrites(submissionId, () -> {
+            Map<String, Long> statusCountDeltas = new HashMap<>();
+            for (List<String> page : pages(submittableIds)) {
+                for (String statusToAllow : processingStatusesToAllow) {
+                    long movedToDispatched = mongoTemplate.updateMulti(
+                            query(where("submissionId").is(submissionId)
+                                    .and("submittableId").in(page)
+                                    .and("status").is(statusToAllow)),
+                            new Update().set("status", ProcessingStatusEnum.Dispatched.name())
+                                    .set("lastModifiedDate", new Date())
+                                    .set(PUBLISH_PENDING, true),
+                            ProcessingStatus.class
+                    ).getN();
+
+                    statusCountDeltas.merge(statusToAllow, -movedToDispatched, Long::sum);
+                    statusCountDeltas.merge(ProcessingStatusEnum.Dispatched.name(), movedToDispatched, Long::sum);
+                }
+            }
+            return statusCountDeltas;
+        });
+    }
+
+    /**
+     * Clear the publish pending flag of the submittables of an envelope once it has been published to the archive agent
+     */
+    @Override
+    public void markSubmittablesAsPublished(Archive archive, SubmissionEnvelope submissionEnvelope) {
+        String submissionId = submissionEnvelope.getSubmission().getId();
+
+        for (List<String> page : pages(submittableIdsOf(submissionEnvelope))) {
+            mongoTemplate.updateMulti(
+                    query(where("submissionId").is(submissionId)
+                            .and("submittableId").in(page)
+                            .and(PUBLISH_PENDING).is(true)),
+                    new Update().unset(PUBLISH_PENDING),
+                    ProcessingStatus.class
+            );
+        }
+    }
+
+    /**
+     * Set the dispatched submittables of an envelope that could not be published to error, once the
+     * publish attempts are used up
+     */
+    @Override
+    public void markSubmittablesAsErrored(Archive archive, SubmissionEnvelope submissionEnvelope) {
+        String submissionId = submissionEnvelope.getSubmission().getId();
+        List<String> submittableIds = submittableIdsOf(submissionEnvelope);
+
+        submissionStatusCounter.countStatusWrites(submissionId, () -> {
+            long erroredCount = 0;
+            for (List<String> page : pages(submittableIds)) {
+                erroredCount += mongoTemplate.updateMulti(
+                        query(where("submissionId").is(submissionId)
+                                .and("submittableId").in(page)
+                                .and("archive").is(archive.name())
+                                .and("status").is(ProcessingStatusEnum.Dispatched.name())),
+                        new Update().set("status", ProcessingStatusEnum.Error.name())
+                                .set("lastModifiedDate", new Date())
+                                .unset(PUBLISH_PENDING),
+                        ProcessingStatus.class
+                ).getN();
+            }
+
+            logger.warn("Submission {} to {}: {} submittables set to error", submissionId, archive, erroredCount);
+
+            Map<String, Long> statusCountDeltas = new HashMap<>();
+            statusCountDeltas.put(ProcessingStatusEnum.Dispatched.name(), -erroredCount);
+            statusCountDeltas.put(ProcessingStatusEnum.Error.name(), erroredCount);
+            return statusCountDeltas;
+        });
+    }
+
+    /**
+     * Set the submittables dispatched before the given date, but never published, back to submitted.
+     * These are left behind by a publish that was lost, e.g. scheduled in a process that has been restarted since.
+     *
+     * @return the IDs of the submissions with submittables set back to submitted
+     */
+    @Override
+    public List<String> revertOverdueDispatches(Date dispatchedBefore) {
+        Query overdueQuery = query(overdueCriteria(dispatchedBefore));
+        overdueQuery.fields().include("submissionId");
+
+        Set<String> submissionIds = mongoTemplate.find(overdueQuery, ProcessingStatus.class).stream()
+                .map(ProcessingStatus::getSubmissionId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        List<String> revertedSubmissionIds = new ArrayList<>();
+        for (String submissionId : submissionIds) {
+            long[] revertedCount = new long[1];
+
+            submissionStatusCounter.countStatusWrites(submissionId, () -> {
+                revertedCount[0] = mongoTemplate.updateMulti(
+                        query(overdueCriteria(dispatchedBefore).and("submissionId").is(submissionId)),
+                        new Update().set("status", ProcessingStatusEnum.Submitted.name())
+                                .set("lastModifiedDate", new Date())
+                                .unset(PUBLISH_PENDING),
+                        ProcessingStatus.class
+                ).getN();
+
+                Map<String, Long> statusCountDeltas = new HashMap<>();
+                statusCountDeltas.put(ProcessingStatusEnum.Dispatched.name(), -revertedCount[0]);
+                statusCountDeltas.put(ProcessingStatusEnum.Submitted.name(), revertedCount[0]);
+                return statusCountDeltas;
+            });
+
+            if (revertedCount[0] > 0) {
+                logger.warn("Submission {}: {} submittables dispatched but never published set back to submitted",
+                        submissionId, revertedCount[0]);
+                revertedSubmissionIds.add(submissionId);
+            }
+        }
+        return revertedSubmissionIds;
+    }
+
+    private static Criteria overdueCriteria(Date dispatchedBefore) {
+        return where("status").is(ProcessingStatusEnum.Dispatched.name())
+                .and(PUBLISH_PENDING).is(true)
+                .and("lastModifiedDate").lt(dispatchedBefore);
+    }
+
+    private static List<String> submittableIdsOf(SubmissionEnvelope submissionEnvelope) {
+        return submissionEnvelope
+                .allSubmissionItemsStream()
+                .map(Submittable::getId)
+                .collect(Collectors.toList());
+    }
+
+    private List<List<String>> pages(List<String> ids) {
+        int pageSize = dispatcherBatchProperties.getSize();
+        List<List<String>> pages = new ArrayList<>();
+
+        for (int from = 0; from < ids.size(); from += pageSize) {
+            pages.add(ids.subList(from, Math.min(from + pageSize, ids.size())));
+        }
+        return pages;
     }
 
     // only inserting Assays' SampleRefs for now
     @Override
     public void insertReferencedSamples(SubmissionEnvelope submissionEnvelope) {
+        List<Sample> supportingSamples = submissionEnvelope.getSupportingSamples();
+
+        SampleRefIndex sampleRefIndex = new SampleRefIndex();
+        sampleRefIndex.addAll(submissionEnvelope.getSamples());
+        sampleRefIndex.addAll(supportingSamples);
+
+        //refs to samples already in the envelope do not need to be looked up
         Set<SampleRef> assaySampleRefs = submissionEnvelope.getAssays()
                 .stream()
                 .flatMap(assay -> assay.getSampleUses().stream())
                 .map(SampleUse::getSampleRef)
+                .filter(sampleRef -> sampleRefIndex.findMatch(sampleRef) == null)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        if (assaySampleRefs.isEmpty()) {
+            return;
+        }
+
+        Set<String> supportingSampleIds = supportingSamples.stream()
+                .map(Sample::getId)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toSet());
 
-        submissionEnvelope.getSupportingSamples().addAll((Set<? extends Sample>) refLookupService.lookupRefs(assaySampleRefs));
+        refResolver.resolve(assaySampleRefs).values().stream()
+                .filter(Objects::nonNull)
+                .filter(sample -> supportingSampleIds.add(sample.getId()))
+                .forEach(sample -> supportingSamples.add((Sample) sample));
     }
 
     @Override
     public void insertUploadedFiles(SubmissionEnvelope submissionEnvelope) {
         String submissionId = submissionEnvelope.getSubmission().getId();
-        Map<String, File> files = filesByFilename(fileRepository.findBySubmissionId(submissionId));
 
-        Stream<uk.ac.ebi.subs.data.component.File> filesReferencedInEnvelope = filesReferencedInEnvelope(submissionEnvelope);
+        List<String> referencedFilenames = filesReferencedInEnvelope(submissionEnvelope)
+                .map(uk.ac.ebi.subs.data.component.File::getName)
+                .collect(Collectors.toList());
 
-        List<UploadedFile> uploadedFiles = filesReferencedInEnvelope
-                .map(fileRef -> files.get(fileRef.getName()))
+        if (referencedFilenames.isEmpty()) {
+            return;
+        }
+
+        Map<String, File> files = uploadedFileLookup.findBySubmissionIdAndFilenames(submissionId, referencedFilenames);
+
+        List<UploadedFile> uploadedFiles = referencedFilenames.stream()
+                .map(files::get)
                 .filter(Objects::nonNull)
                 .map(this::convertFileToUploadedFile)
                 .collect(Collectors.toList());
@@ -251,65 +423,80 @@ public class DispatcherServiceImpl implements DispatcherService {
     }
 
     public void determineSupportingInformationRequiredForSamples(SubmissionEnvelope submissionEnvelope) {
-        List<Sample> samples = submissionEnvelope.getSamples();
         List<Assay> assays = submissionEnvelope.getAssays();
         Set<SampleRef> suppportingSamplesRequired = submissionEnvelope.getSupportingSamplesRequired();
-        List<Sample> supportingSamples = submissionEnvelope.getSupportingSamples();
+
+        //samples in the submission are matched ahead of samples already in the supporting information
+        SampleRefIndex sampleRefIndex = new SampleRefIndex();
+        sampleRefIndex.addAll(submissionEnvelope.getSamples());
+        sampleRefIndex.addAll(submissionEnvelope.getSupportingSamples());
+
+        Set<SampleRef> sampleRefsToLookUp = new LinkedHashSet<>();
 
         for (Assay assay : assays) {
             for (SampleUse sampleUse : assay.getSampleUses()) {
                 SampleRef sampleRef = sampleUse.getSampleRef();
 
-                if (suppportingSamplesRequired.contains(sampleRef)) {
-                    //skip the searching steps if the sample ref is already in the sample required set
+                if (suppportingSamplesRequired.contains(sampleRef) || sampleRefsToLookUp.contains(sampleRef)) {
+                    //skip the searching steps if the sample ref has already been seen
                     continue;
                 }
 
-                //is the sample in the submission
-                Sample s = sampleRef.findMatch(samples);
-
-                if (s == null) {
-                    //is the sample already in the supporting information
-                    s = sampleRef.findMatch(supportingSamples);
+                if (sampleRefIndex.findMatch(sampleRef) == null) {
+                    sampleRefsToLookUp.add(sampleRef);
                 }
+            }
+        }
 
-                if (s == null) {
-                    // is the sample already in the USI db
-                    s = (Sample) refLookupService.lookupRef(sampleRef);
-                }
+        if (sampleRefsToLookUp.isEmpty()) {
+            return;
+        }
 
-                if (s == null) {
-                    // sample referenced is not in the supporting information, nor in the submission, nor in the USI db so need to fetch it
-                    suppportingSamplesRequired.add(sampleRef);
-                }
+        // is the sample already in the USI db
+        Map<String, StoredSubmittable> samplesInDb = refResolver.resolve(sampleRefsToLookUp);
 
+        for (SampleRef sampleRef : sampleRefsToLookUp) {
+            if (samplesInDb.get(RefResolver.refKey(sampleRef)) == null) {
+                // sample referenced is not in the supporting information, nor in the submission, nor in the USI db so need to fetch it
+                suppportingSamplesRequired.add(sampleRef);
             }
         }
-
     }
 
     private Set<String> processingStatusesToAllow;
     private Map<String, SubmittableRepository> submittableRepositoryMap;
     private Map<String, SubmittableRepository<? extends StoredSubmittable>> dataTypeRepositoryMap;
-    private RefLookupService refLookupService;
     private SubmissionEnvelopeService submissionEnvelopeService;
-    private ProcessingStatusBulkOperations processingStatusBulkOperations;
     private ProcessingStatusRepository processingStatusRepository;
     private SubmissionEnvelopeStuffer submissionEnvelopeStuffer;
-    private FileRepository fileRepository;
+    private UploadedFileLookup uploadedFileLookup;
+    private SubmittableBatchLoader submittableBatchLoader;
+    private RefGraphWalker refGraphWalker;
+    private RefResolver refResolver;
+    private DispatchMetrics dispatchMetrics;
+    private SubmissionStatusCounter submissionStatusCounter;
+    private MongoTemplate mongoTemplate;
+    private DispatcherBatchProperties dispatcherBatchProperties;
 
     public DispatcherServiceImpl(Map<Class<? extends StoredSubmittable>, SubmittableRepository<? extends StoredSubmittable>> submittableRepositoryMap,
                                  SubmittableConfig.DataTypeRepositoryMap dataTypeRepositoryMap,
-                                 RefLookupService refLookupService, SubmissionEnvelopeService submissionEnvelopeService,
-                                 ProcessingStatusBulkOperations processingStatusBulkOperations,
+                                 SubmissionEnvelopeService submissionEnvelopeService,
                                  ProcessingStatusRepository processingStatusRepository, SubmissionEnvelopeStuffer submissionEnvelopeStuffer,
-                                 FileRepository fileRepository) {
-        this.refLookupService = refLookupService;
+                                 UploadedFileLookup uploadedFileLookup, SubmittableBatchLoader submittableBatchLoader,
+                                 RefGraphWalker refGraphWalker, RefResolver refResolver,
+                                 DispatchMetrics dispatchMetrics, SubmissionStatusCounter submissionStatusCounter,
+                                 MongoTemplate mongoTemplate, DispatcherBatchProperties dispatcherBatchProperties) {
         this.submissionEnvelopeService = submissionEnvelopeService;
-        this.processingStatusBulkOperations = processingStatusBulkOperations;
         this.processingStatusRepository = processingStatusRepository;
         this.submissionEnvelopeStuffer = submissionEnvelopeStuffer;
-        this.fileRepository = fileRepository;
+        this.uploadedFileLookup = uploadedFileLookup;
+        this.submittableBatchLoader = submittableBatchLoader;
+        this.refGraphWalker = refGraphWalker;
+        this.refResolver = refResolver;
+        this.dispatchMetrics = dispatchMetrics;
+        this.submissionStatusCounter = submissionStatusCounter;
+        this.mongoTemplate = mongoTemplate;
+        this.dispatcherBatchProperties = dispatcherBatchProperties;
 
         setupStatusesToProcess();
         buildSubmittableRepositoryMap(submittableRepositoryMap);
@@ -328,11 +515,4 @@ public class DispatcherServiceImpl implements DispatcherService {
         processingStatusesToAllow.add(ProcessingStatusEnum.Draft.name());
         processingStatusesToAllow.add(ProcessingStatusEnum.Submitted.name());
     }
-
-    private Map<String, File> filesByFilename(List<File> files) {
-        Map<String, File> filesByFilename = new HashMap<>();
-        files.forEach(file -> filesByFilename.put(file.getFilename(), file));
-
-        return filesByFilename;
-    }
 }
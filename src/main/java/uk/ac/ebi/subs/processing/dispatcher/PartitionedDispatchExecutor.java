@@ -0,0 +1,106 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Striped executor for the dispatch of submissions.
+ *
+ * Each partition has a single thread, and a submission always goes to the partition its ID hashes to.
+ * The dispatch of one submission is therefore strictly serial, while submissions on different partitions
+ * are dispatched in parallel.
+ * The dispatcher queue and each dispatch lane have their own executor, see {@link DispatchPartitionConfig}.
+ */
+public class PartitionedDispatchExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedDispatchExecutor.class);
+
+    private List<ThreadPoolTaskExecutor> partitions = new ArrayList<>();
+
+    public PartitionedDispatchExecutor(String name, int partitionCount, DispatchMetrics dispatchMetrics) {
+        for (int i = 0; i < partitionCount; i++) {
+            ThreadPoolTaskExecutor partition = new ThreadPoolTaskExecutor();
+            partition.setCorePoolSize(1);
+            partition.setMaxPoolSize(1);
+            partition.setThreadNamePrefix("dispatch-" + name + "-partition-" + i + "-");
+            partition.setWaitForTasksToCompleteOnShutdown(true);
+            partition.setAwaitTerminationSeconds(60);
+            partition.initialize();
+
+            partitions.add(partition);
+        }
+
+        dispatchMetrics.partitionGauges(name, partitions.size(), this::queueDepth);
+    }
+
+    public boolean isEnabled() {
+        return !partitions.isEmpty();
+    }
+
+    public int partitionCount() {
+        return partitions.size();
+    }
+
+    int partitionOf(String submissionId) {
+        return Math.floorMod(submissionId.hashCode(), partitions.size());
+    }
+
+    int queueDepth(int partition) {
+        return partitions.get(partition).getThreadPoolExecutor().getQueue().size();
+    }
+
+    /**
+     * Run the dispatch of a submission on its partition and wait for it to finish
+     *
+     * @param submissionId the ID of the submission
+     * @param dispatch     the dispatch to run
+     * @throws RuntimeException if the dispatch failed
+     */
+    public void execute(String submissionId, Runnable dispatch) {
+        try {
+            submit(submissionId, dispatch).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Hand the dispatch of a submission over to its partition without waiting for it.
+     * Without partitions the dispatch runs on the calling thread, the dispatch pool of the coalescer when coalescing.
+     *
+     * @param submissionId the ID of the submission
+     * @param dispatch     the dispatch to run
+     * @return completes once the dispatch has finished, exceptionally if it failed
+     */
+    public CompletableFuture<Void> submit(String submissionId, Runnable dispatch) {
+        if (!isEnabled()) {
+            try {
+                dispatch.run();
+                return CompletableFuture.completedFuture(null);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        int partition = partitionOf(submissionId);
+        logger.debug("dispatch of submission {} runs on partition {}", submissionId, partition);
+
+        return CompletableFuture.runAsync(dispatch, partitions.get(partition));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        partitions.forEach(ThreadPoolTaskExecutor::shutdown);
+    }
+}
@@ -0,0 +1,20 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Size of the cache of accessioned reference targets kept by the {@link RefResolver} between dispatch cycles.
+ * The least recently used entries are evicted once the cache is full.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Component
+@ConfigurationProperties(prefix = "usi.archive.dispatcher.ref-cache")
+class RefCacheProperties {
+    private int maxSize = 10000;
+}
@@ -0,0 +1,20 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits of the transitive reference walk made by the dispatcher.
+ * Submittables further than the max depth away from the submission's own submittables are not walked.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Component
+@ConfigurationProperties(prefix = "usi.archive.dispatcher.ref-graph")
+class RefGraphProperties {
+    private int maxDepth = 32;
+}
@@ -0,0 +1,19 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Size of the reference graph walked while assessing the dispatch readiness of a submission.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RefGraphStatistics {
+    private int nodes;
+    private int edges;
+    private int maxDepth;
+    private int cycles;
+    private int truncatedNodes;
+}
@@ -0,0 +1,206 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ebi.subs.data.component.AbstractSubsRef;
+import uk.ac.ebi.subs.repository.model.StoredSubmittable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Breadth first walk of the transitive references of a set of submittables.
+ *
+ * Each level of the graph is resolved in bulk through the {@link RefResolver}. A visited set makes sure shared
+ * subgraphs are walked once, which also stops the walk on cyclic references, e.g. samples derived from each other.
+ * Nodes deeper than the max depth are not expanded.
+ * On the way, accessions of the resolved targets are filled in to the refs pointing to them.
+ *
+ * A walk is not thread safe, it is meant to be used for one dispatch cycle of one submission.
+ */
+public class RefGraphWalk {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefGraphWalk.class);
+
+    private RefResolver refResolver;
+    private int maxDepth;
+
+    private final Map<String, StoredSubmittable> resolvedRefs = new HashMap<>();
+    private final Set<String> expandedNodes = new HashSet<>();
+    private final Map<String, Set<String>> adjacency = new HashMap<>();
+    private int edges = 0;
+    private int deepestLevel = 0;
+    private int truncatedNodes = 0;
+
+    RefGraphWalk(RefResolver refResolver, int maxDepth) {
+        this.refResolver = refResolver;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Walk the graph of references starting at the given submittables
+     *
+     * @param roots the submittables to start from
+     */
+    public void walkFrom(Collection<? extends StoredSubmittable> roots) {
+        List<StoredSubmittable> level = new ArrayList<>(roots);
+        int depth = 0;
+
+        while (!level.isEmpty()) {
+            if (depth > maxDepth) {
+                truncatedNodes += level.size();
+                logger.warn("reference walk stopped at depth {}, {} submittables not expanded", maxDepth, level.size());
+                return;
+            }
+
+            List<AbstractSubsRef> unresolvedRefs = level.stream()
+                    .filter(node -> !expandedNodes.contains(nodeKey(node)))
+                    .flatMap(RefGraphWalk::usableRefs)
+                    .filter(ref -> !resolvedRefs.containsKey(RefResolver.refKey(ref)))
+                    .collect(Collectors.toList());
+            if (!unresolvedRefs.isEmpty()) {
+                resolvedRefs.putAll(refResolver.resolve(unresolvedRefs));
+            }
+
+            List<StoredSubmittable> nextLevel = new ArrayList<>();
+
+            for (StoredSubmittable node : level) {
+                String nodeKey = nodeKey(node);
+
+                if (!expandedNodes.add(nodeKey)) {
+                    // already walked, possibly through another instance of it, only fill in its accessions
+                    usableRefs(node).forEach(this::resolve);
+                    continue;
+                }
+
+                Set<String> targets = adjacency.computeIfAbsent(nodeKey, key -> new LinkedHashSet<>());
+
+                usableRefs(node).forEach(ref -> {
+                    StoredSubmittable target = resolve(ref);
+
+                    if (target == null) {
+                        return;
+                    }
+
+                    String targetKey = nodeKey(target);
+                    if (targets.add(targetKey)) {
+                        edges++;
+                    }
+
+                    if (!expandedNodes.contains(targetKey)) {
+                        nextLevel.add(target);
+                    }
+                });
+            }
+
+            if (!nextLevel.isEmpty()) {
+                deepestLevel = Math.max(deepestLevel, depth + 1);
+            }
+
+            level = nextLevel;
+            depth++;
+        }
+    }
+
+    /**
+     * Target of a ref, filling in its accession when the target has been accessioned
+     *
+     * @param ref the reference
+     * @return the target, or null if it cannot be found
+     */
+    public StoredSubmittable resolve(AbstractSubsRef ref) {
+        String refKey = RefResolver.refKey(ref);
+
+        if (!resolvedRefs.containsKey(refKey)) {
+            resolvedRefs.putAll(refResolver.resolve(Collections.singletonList(ref)));
+        }
+
+        StoredSubmittable target = resolvedRefs.get(refKey);
+
+        if (target != null && !ref.isAccessioned() && target.isAccessioned()) {
+            ref.setAccession(target.getAccession());
+            resolvedRefs.putIfAbsent(RefResolver.refKey(ref), target);
+        }
+
+        return target;
+    }
+
+    public RefGraphStatistics statistics() {
+        Set<String> nodes = new HashSet<>(adjacency.keySet());
+        adjacency.values().forEach(nodes::addAll);
+
+        return new RefGraphStatistics(nodes.size(), edges, deepestLevel, countCycles(adjacency), truncatedNodes);
+    }
+
+    /**
+     * Count the back edges of a graph, with an iterative depth first search
+     *
+     * @param adjacency targets of each node
+     * @return the number of back edges, each of them closes a cycle
+     */
+    static int countCycles(Map<String, Set<String>> adjacency) {
+        final Integer inProgress = 1;
+        final Integer done = 2;
+
+        Map<String, Integer> state = new HashMap<>();
+        int cycles = 0;
+
+        for (String start : adjacency.keySet()) {
+            if (state.containsKey(start)) {
+                continue;
+            }
+
+            Deque<String> path = new ArrayDeque<>();
+            Deque<Iterator<String>> pending = new ArrayDeque<>();
+
+            state.put(start, inProgress);
+            path.push(start);
+            pending.push(adjacency.getOrDefault(start, Collections.emptySet()).iterator());
+
+            while (!pending.isEmpty()) {
+                Iterator<String> targets = pending.peek();
+
+                if (targets.hasNext()) {
+                    String target = targets.next();
+                    Integer targetState = state.get(target);
+
+                    if (targetState == null) {
+                        state.put(target, inProgress);
+                        path.push(target);
+                        pending.push(adjacency.getOrDefault(target, Collections.emptySet()).iterator());
+                    } else if (targetState.equals(inProgress)) {
+                        cycles++;
+                    }
+                } else {
+                    pending.pop();
+                    state.put(path.pop(), done);
+                }
+            }
+        }
+
+        return cycles;
+    }
+
+    private static Stream<AbstractSubsRef> usableRefs(StoredSubmittable submittable) {
+        return submittable.refs()
+                .filter(Objects::nonNull)
+                .filter(ref -> ref.getAlias() != null || ref.getAccession() != null); //TODO this is because of empty refs as defaults
+    }
+
+    private static String nodeKey(StoredSubmittable submittable) {
+        return submittable.getClass().getSimpleName() + ":" + submittable.getId();
+    }
+}
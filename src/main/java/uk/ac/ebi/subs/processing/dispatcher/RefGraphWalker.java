@@ -0,0 +1,22 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the {@link RefGraphWalk} used to follow the references of a submission's submittables.
+ */
+@Component
+public class RefGraphWalker {
+
+    private RefResolver refResolver;
+    private RefGraphProperties refGraphProperties;
+
+    public RefGraphWalker(RefResolver refResolver, RefGraphProperties refGraphProperties) {
+        this.refResolver = refResolver;
+        this.refGraphProperties = refGraphProperties;
+    }
+
+    public RefGraphWalk newWalk() {
+        return new RefGraphWalk(refResolver, refGraphProperties.getMaxDepth());
+    }
+}
@@ -0,0 +1,244 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PersistentProperty;
+import org.springframework.data.mapping.PersistentPropertyAccessor;
+import org.springframework.data.mapping.SimpleAssociationHandler;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.subs.data.component.AbstractSubsRef;
+import uk.ac.ebi.subs.repository.model.StoredSubmittable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Resolves references to the submittables they point to.
+ *
+ * Unresolved refs are grouped by the type of submittable they point to and looked up with one $in query per page,
+ * per type and team, instead of one query per ref. A ref that is not found by the bulk lookup, or that does not
+ * point to a known submittable type, is left unresolved.
+ * Once a target is accessioned it does not change any more, so accessioned targets of refs by accession are kept in
+ * a bounded LRU cache that lives across dispatch cycles. Refs by alias are looked up on every call, as a newer
+ * submittable with the same alias takes over the alias.
+ * The cache holds its own copies of the targets and hands out copies, as callers fill in the refs of the targets
+ * they get.
+ */
+@Component
+public class RefResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefResolver.class);
+
+    private static final String REF_CLASS_SUFFIX = "Ref";
+
+    private MongoTemplate mongoTemplate;
+    private DispatcherBatchProperties dispatcherBatchProperties;
+    private Map<String, Class<? extends StoredSubmittable>> submittableClassesByName;
+    private Map<String, StoredSubmittable> accessionedTargetCache;
+
+    public RefResolver(MongoTemplate mongoTemplate,
+                       List<Class<? extends StoredSubmittable>> submittablesClassList,
+                       DispatcherBatchProperties dispatcherBatchProperties, RefCacheProperties refCacheProperties) {
+        this.mongoTemplate = mongoTemplate;
+        this.dispatcherBatchProperties = dispatcherBatchProperties;
+
+        this.submittableClassesByName = new HashMap<>();
+        submittablesClassList.forEach(clazz -> submittableClassesByName.put(clazz.getSimpleName(), clazz));
+
+        final int maxCacheSize = refCacheProperties.getMaxSize();
+        this.accessionedTargetCache = Collections.synchronizedMap(
+                new LinkedHashMap<String, StoredSubmittable>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, StoredSubmittable> eldest) {
+                        return size() > maxCacheSize;
+                    }
+                }
+        );
+    }
+
+    /**
+     * Key identifying the target of a ref, by accession if the ref has one, by team and alias otherwise
+     *
+     * @param ref the reference
+     * @return the key of the ref's target
+     */
+    public static String refKey(AbstractSubsRef ref) {
+        if (ref.getAccession() != null) {
+            return ref.getClass().getName() + "|accession|" + ref.getAccession();
+        }
+        return ref.getClass().getName() + "|alias|" + ref.getTeam() + "|" + ref.getAlias();
+    }
+
+    /**
+     * Resolve refs to their targets
+     *
+     * @param refs the references to resolve
+     * @return map of {@link #refKey(AbstractSubsRef)} to the target, with a null value for refs that could not be resolved
+     */
+    public Map<String, StoredSubmittable> resolve(Collection<? extends AbstractSubsRef> refs) {
+        Map<String, StoredSubmittable> resolved = new HashMap<>();
+        Map<Class<? extends StoredSubmittable>, Map<String, AbstractSubsRef>> unresolvedByTargetType = new HashMap<>();
+
+        for (AbstractSubsRef ref : refs) {
+            String refKey = refKey(ref);
+
+            if (resolved.containsKey(refKey)) {
+                continue;
+            }
+
+            StoredSubmittable cachedTarget = (ref.getAccession() != null) ? accessionedTargetCache.get(refKey) : null;
+            if (cachedTarget != null) {
+                resolved.put(refKey, copyOf(cachedTarget));
+                continue;
+            }
+
+            Class<? extends StoredSubmittable> targetType = targetType(ref);
+            if (targetType == null) {
+                logger.debug("no submittable type for ref {}, left unresolved", refKey);
+                resolved.put(refKey, null);
+            } else {
+                unresolvedByTargetType.computeIfAbsent(targetType, type -> new HashMap<>()).put(refKey, ref);
+            }
+        }
+
+        for (Map.Entry<Class<? extends StoredSubmittable>, Map<String, AbstractSubsRef>> entry : unresolvedByTargetType.entrySet()) {
+            resolved.putAll(bulkLookup(entry.getKey(), entry.getValue()));
+        }
+
+        for (Map<String, AbstractSubsRef> refsByKey : unresolvedByTargetType.values()) {
+            for (Map.Entry<String, AbstractSubsRef> entry : refsByKey.entrySet()) {
+                StoredSubmittable target = resolved.get(entry.getKey());
+                if (entry.getValue().getAccession() != null && target != null && target.isAccessioned()) {
+                    accessionedTargetCache.put(entry.getKey(), copyOf(target));
+                }
+            }
+        }
+
+        return resolved;
+    }
+
+    /**
+     * Copy of a submittable, through its document. The referenced documents are not copied, they are shared with
+     * the original.
+     */
+    private StoredSubmittable copyOf(StoredSubmittable target) {
+        MongoConverter converter = mongoTemplate.getConverter();
+
+        DBObject document = new BasicDBObject();
+        converter.write(target, document);
+        document.keySet().removeIf(key -> isDbRef(document.get(key)));
+
+        StoredSubmittable copy = converter.read(target.getClass(), document);
+
+        MongoPersistentEntity<?> entity = converter.getMappingContext().getPersistentEntity(target.getClass());
+        PersistentPropertyAccessor targetAccessor = entity.getPropertyAccessor(target);
+        PersistentPropertyAccessor copyAccessor = entity.getPropertyAccessor(copy);
+        entity.doWithAssociations((SimpleAssociationHandler) association -> {
+            PersistentProperty<?> property = association.getInverse();
+            copyAccessor.setProperty(property, targetAccessor.getProperty(property));
+        });
+
+        return copy;
+    }
+
+    private static boolean isDbRef(Object value) {
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).stream().anyMatch(DBRef.class::isInstance);
+        }
+        return value instanceof DBRef;
+    }
+
+    private Map<String, StoredSubmittable> bulkLookup(Class<? extends StoredSubmittable> targetType,
+                                                      Map<String, AbstractSubsRef> refsByKey) {
+        Set<String> accessions = new HashSet<>();
+        Map<String, Set<String>> aliasesByTeam = new HashMap<>();
+
+        for (AbstractSubsRef ref : refsByKey.values()) {
+            if (ref.getAccession() != null) {
+                accessions.add(ref.getAccession());
+            } else if (ref.getTeam() != null && ref.getAlias() != null) {
+                aliasesByTeam.computeIfAbsent(ref.getTeam(), team -> new HashSet<>()).add(ref.getAlias());
+            }
+        }
+
+        Map<String, StoredSubmittable> byAccession = findInPages(
+                targetType, accessions, page -> query(where("accession").in(page)), StoredSubmittable::getAccession);
+
+        Map<String, StoredSubmittable> byTeamAndAlias = new HashMap<>();
+        for (Map.Entry<String, Set<String>> teamAndAliases : aliasesByTeam.entrySet()) {
+            String team = teamAndAliases.getKey();
+            findInPages(
+                    targetType,
+                    teamAndAliases.getValue(),
+                    page -> query(where("team.name").is(team).and("alias").in(page)),
+                    StoredSubmittable::getAlias
+            ).forEach((alias, target) -> byTeamAndAlias.put(team + "|" + alias, target));
+        }
+
+        Map<String, StoredSubmittable> resolved = new HashMap<>();
+        for (Map.Entry<String, AbstractSubsRef> entry : refsByKey.entrySet()) {
+            AbstractSubsRef ref = entry.getValue();
+
+            StoredSubmittable target = (ref.getAccession() != null)
+                    ? byAccession.get(ref.getAccession())
+                    : byTeamAndAlias.get(ref.getTeam() + "|" + ref.getAlias());
+
+            resolved.put(entry.getKey(), target);
+        }
+
+        logger.debug("resolved {} refs to {} in bulk", refsByKey.size(), targetType.getSimpleName());
+
+        return resolved;
+    }
+
+    private Map<String, StoredSubmittable> findInPages(Class<? extends StoredSubmittable> targetType,
+                                                       Collection<String> values,
+                                                       Function<List<String>, Query> queryForPage,
+                                                       Function<StoredSubmittable, String> keyExtractor) {
+        List<String> valueList = new ArrayList<>(values);
+        Map<String, StoredSubmittable> found = new HashMap<>();
+        int batchSize = dispatcherBatchProperties.getSize();
+
+        for (int from = 0; from < valueList.size(); from += batchSize) {
+            List<String> page = valueList.subList(from, Math.min(from + batchSize, valueList.size()));
+
+            Query query = queryForPage.apply(page).with(new Sort(Sort.Direction.DESC, "createdDate"));
+
+            // newest first, so the first match of a key wins, like the single ref lookup
+            for (StoredSubmittable target : mongoTemplate.find(query, targetType)) {
+                found.putIfAbsent(keyExtractor.apply(target), target);
+            }
+        }
+
+        return found;
+    }
+
+    private Class<? extends StoredSubmittable> targetType(AbstractSubsRef ref) {
+        String refClassName = ref.getClass().getSimpleName();
+
+        if (!refClassName.endsWith(REF_CLASS_SUFFIX)) {
+            return null;
+        }
+
+        return submittableClassesByName.get(refClassName.substring(0, refClassName.length() - REF_CLASS_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,48 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import uk.ac.ebi.subs.data.component.SampleRef;
+import uk.ac.ebi.subs.data.submittable.Sample;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hash index of samples by accession and by team and alias, so sample refs can be matched without scanning lists.
+ * When several samples share a key, the first one indexed wins, as with {@link SampleRef#findMatch}.
+ */
+class SampleRefIndex {
+
+    private final Map<String, Sample> samplesByAccession = new HashMap<>();
+    private final Map<String, Sample> samplesByTeamAndAlias = new HashMap<>();
+
+    void addAll(Collection<? extends Sample> samples) {
+        samples.forEach(this::add);
+    }
+
+    void add(Sample sample) {
+        if (sample.getAccession() != null) {
+            samplesByAccession.putIfAbsent(sample.getAccession(), sample);
+        }
+        if (sample.getAlias() != null && sample.getTeam() != null && sample.getTeam().getName() != null) {
+            samplesByTeamAndAlias.putIfAbsent(teamAndAliasKey(sample.getTeam().getName(), sample.getAlias()), sample);
+        }
+    }
+
+    Sample findMatch(SampleRef sampleRef) {
+        Sample match = null;
+
+        if (sampleRef.getAccession() != null) {
+            match = samplesByAccession.get(sampleRef.getAccession());
+        }
+        if (match == null && sampleRef.getAlias() != null && sampleRef.getTeam() != null) {
+            match = samplesByTeamAndAlias.get(teamAndAliasKey(sampleRef.getTeam(), sampleRef.getAlias()));
+        }
+
+        return match;
+    }
+
+    private static String teamAndAliasKey(String teamName, String alias) {
+        return teamName + "|" + alias;
+    }
+}
@@ -4,10 +4,10 @@ import org.springframework.stereotype.Service;
 import uk.ac.ebi.subs.data.status.ProcessingStatusEnum;
 import uk.ac.ebi.subs.data.status.SubmissionStatusEnum;
 import uk.ac.ebi.subs.error.EntityNotFoundException;
+import uk.ac.ebi.subs.progressmonitor.SubmissionStatusCounter;
 import uk.ac.ebi.subs.repository.model.Submission;
 import uk.ac.ebi.subs.repository.model.SubmissionStatus;
 import uk.ac.ebi.subs.repository.repos.SubmissionRepository;
-import uk.ac.ebi.subs.repository.repos.status.ProcessingStatusRepository;
 import uk.ac.ebi.subs.repository.repos.status.SubmissionStatusRepository;
 
 import java.util.Arrays;
@@ -20,13 +20,14 @@ import java.util.stream.Stream;
 
 /**
  * This is a Spring @Service component for {@link Submission} entity, that is dealing with {@link Submission} completion.
+ * The status summary of a submission is read from its {@link SubmissionStatusCounter} counts.
  */
 @Service
 public class SubmissionCompletionService {
 
-    private ProcessingStatusRepository processingStatusRepository;
     private SubmissionStatusRepository submissionStatusRepository;
     private SubmissionRepository submissionRepository;
+    private SubmissionStatusCounter submissionStatusCounter;
 
     private final static List<String> SUCCEED_PROCESSINGSTATUSES =
             Arrays.asList(ProcessingStatusEnum.Completed.name(), ProcessingStatusEnum.ArchiveDisabled.name());
@@ -35,47 +36,58 @@ public class SubmissionCompletionService {
     private final static List<String> FINISHED_PROCESSINGSTATUSES =
             Stream.concat(SUCCEED_PROCESSINGSTATUSES.stream(), ERRED_PROCESSINGSTATUSES.stream()).collect(Collectors.toList());
 
-    public SubmissionCompletionService(ProcessingStatusRepository processingStatusRepository,
-                                       SubmissionStatusRepository submissionStatusRepository,
-                                       SubmissionRepository submissionRepository) {
-        this.processingStatusRepository = processingStatusRepository;
+    public SubmissionCompletionService(SubmissionStatusRepository submissionStatusRepository,
+                                       SubmissionRepository submissionRepository,
+                                       SubmissionStatusCounter submissionStatusCounter) {
         this.submissionStatusRepository = submissionStatusRepository;
         this.submissionRepository = submissionRepository;
+        this.submissionStatusCounter = submissionStatusCounter;
     }
 
     public boolean allSubmittablesProcessingFinished(String submissionId) {
-        Map<String, Integer> statusSummary = getSubmissionStatusSummary(submissionId);
+        return allFinished(getSubmissionStatusSummary(submissionId));
+    }
 
-        for(String statusKey : statusSummary.keySet()) {
-            if (!FINISHED_PROCESSINGSTATUSES.contains(statusKey)) {
-                return false;
-            }
-        }
+    /**
+     * Mark the submission as completed or failed, once a fresh aggregation over its processing statuses confirms
+     * that all of them are finished. The aggregation also reconciles the status counts of the submission.
+     *
+     * @param submissionId the ID of the submission
+     * @return true if the submission was marked, false if some of its submittables are still being processed
+     */
+    public boolean markSubmissionWithFinishedStatus(String submissionId){
+        Map<String, Integer> statusSummary = submissionStatusCounter.reconcile(submissionId);
 
-        return true;
-    }
+        if (!allFinished(statusSummary)) {
+            return false;
+        }
 
-    public void markSubmissionWithFinishedStatus(String submissionId){
         Submission submission = Optional.ofNullable(submissionRepository.findOne(submissionId))
             .orElseThrow(() -> new EntityNotFoundException(
                 String.format("Submission entity with ID: %s is not found in the database.", submissionId)));
 
         SubmissionStatus submissionStatus = submission.getSubmissionStatus();
-        if (allSubmittablesSucceed(submissionId)) {
+        if (Collections.disjoint(statusSummary.keySet(), ERRED_PROCESSINGSTATUSES)) {
             submissionStatus.setStatus(SubmissionStatusEnum.Completed);
         } else {
             submissionStatus.setStatus(SubmissionStatusEnum.Failed);
         }
         submissionStatusRepository.save(submissionStatus);
+        submissionStatusCounter.markCompleted(submissionId);
+        return true;
     }
 
-    private Map<String, Integer> getSubmissionStatusSummary(String submissionId) {
-        return processingStatusRepository.summariseSubmissionStatus(submissionId);
-    }
+    private boolean allFinished(Map<String, Integer> statusSummary) {
+        for(String statusKey : statusSummary.keySet()) {
+            if (!FINISHED_PROCESSINGSTATUSES.contains(statusKey)) {
+                return false;
+            }
+        }
 
-    private boolean allSubmittablesSucceed(String submissionId) {
-        Map<String, Integer> statusSummary = getSubmissionStatusSummary(submissionId);
+        return true;
+    }
 
-        return Collections.disjoint(statusSummary.keySet(), ERRED_PROCESSINGSTATUSES);
+    private Map<String, Integer> getSubmissionStatusSummary(String submissionId) {
+        return submissionStatusCounter.summariseSubmissionStatus(submissionId);
     }
 }
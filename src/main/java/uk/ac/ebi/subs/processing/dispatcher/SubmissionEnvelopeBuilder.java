@@ -0,0 +1,49 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import uk.ac.ebi.subs.processing.SubmissionEnvelope;
+import uk.ac.ebi.subs.repository.model.StoredSubmittable;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Builds a {@link SubmissionEnvelope} holding each submittable once, however many times it is added.
+ * When many submittables reference the same study or samples, these are only put in the envelope the first time.
+ */
+public class SubmissionEnvelopeBuilder {
+
+    private final SubmissionEnvelopeStuffer submissionEnvelopeStuffer;
+    private final SubmissionEnvelope submissionEnvelope;
+    private final Set<String> submittableIds = new HashSet<>();
+
+    SubmissionEnvelopeBuilder(SubmissionEnvelopeStuffer submissionEnvelopeStuffer, SubmissionEnvelope submissionEnvelope) {
+        this.submissionEnvelopeStuffer = submissionEnvelopeStuffer;
+        this.submissionEnvelope = submissionEnvelope;
+    }
+
+    public SubmissionEnvelopeBuilder add(StoredSubmittable storedSubmittable) {
+        if (storedSubmittable.getId() == null || submittableIds.add(storedSubmittable.getId())) {
+            submissionEnvelopeStuffer.add(submissionEnvelope, storedSubmittable);
+        }
+        return this;
+    }
+
+    public SubmissionEnvelopeBuilder addAll(Collection<? extends StoredSubmittable> storedSubmittables) {
+        storedSubmittables.forEach(this::add);
+        return this;
+    }
+
+    public SubmissionEnvelopeBuilder jwtToken(String jwtToken) {
+        submissionEnvelope.setJWTToken(jwtToken);
+        return this;
+    }
+
+    public int size() {
+        return submittableIds.size();
+    }
+
+    public SubmissionEnvelope build() {
+        return submissionEnvelope;
+    }
+}
@@ -2,6 +2,7 @@ package uk.ac.ebi.subs.processing.dispatcher;
 
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.rest.webmvc.ResourceNotFoundException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import uk.ac.ebi.subs.data.Submission;
 import uk.ac.ebi.subs.data.submittable.Project;
@@ -22,14 +23,19 @@ import uk.ac.ebi.subs.repository.repos.submittables.SampleRepository;
 import uk.ac.ebi.subs.repository.repos.submittables.StudyRepository;
 import uk.ac.ebi.subs.repository.repos.submittables.SubmittableRepository;
 
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Stream;
 
 /**
  * This is a Spring @Service component for {@link Submission} entity gathering the items of a submission
  * to an container object (envelope).
+ * The items of each type can be loaded concurrently, see {@link SubmissionFetchProperties}.
  */
 @Service
 public class SubmissionEnvelopeService {
@@ -49,13 +55,16 @@ public class SubmissionEnvelopeService {
 
     private List<SubmittableRepository<?>> submissionContentsRepositories;
 
+    private ThreadPoolTaskExecutor taskExecutor;
+
     public SubmissionEnvelopeService(SubmissionRepository submissionRepository, AnalysisRepository analysisRepository,
                                      AssayDataRepository assayDataRepository, AssayRepository assayRepository,
                                      EgaDacPolicyRepository egaDacPolicyRepository, EgaDacRepository egaDacRepository,
                                      EgaDatasetRepository egaDatasetRepository, ProjectRepository projectRepository,
                                      ProtocolRepository protocolRepository, SampleGroupRepository sampleGroupRepository,
                                      SampleRepository sampleRepository, StudyRepository studyRepository,
-                                     @Qualifier("submissionContentsRepositories") List<SubmittableRepository<?>> submissionContentsRepositories) {
+                                     @Qualifier("submissionContentsRepositories") List<SubmittableRepository<?>> submissionContentsRepositories,
+                                     SubmissionFetchProperties submissionFetchProperties) {
         this.submissionRepository = submissionRepository;
         this.analysisRepository = analysisRepository;
         this.assayDataRepository = assayDataRepository;
@@ -69,6 +78,16 @@ public class SubmissionEnvelopeService {
         this.sampleRepository = sampleRepository;
         this.studyRepository = studyRepository;
         this.submissionContentsRepositories = submissionContentsRepositories;
+
+        if (submissionFetchProperties.getParallelism() > 0) {
+            this.taskExecutor = new ThreadPoolTaskExecutor();
+            this.taskExecutor.setCorePoolSize(submissionFetchProperties.getParallelism());
+            this.taskExecutor.setMaxPoolSize(submissionFetchProperties.getParallelism());
+            this.taskExecutor.setThreadNamePrefix("submission-fetch-");
+            this.taskExecutor.setWaitForTasksToCompleteOnShutdown(true);
+            this.taskExecutor.setAwaitTerminationSeconds(60);
+            this.taskExecutor.initialize();
+        }
     }
 
     public SubmissionEnvelope fetchOne(String submissionId) {
@@ -82,23 +101,55 @@ public class SubmissionEnvelopeService {
 
         SubmissionEnvelope submissionEnvelope = new SubmissionEnvelope(minimalSub);
 
-        submissionEnvelope.getAnalyses().addAll(analysisRepository.findBySubmissionId(submissionId));
-        submissionEnvelope.getAssayData().addAll(assayDataRepository.findBySubmissionId(submissionId));
-        submissionEnvelope.getAssays().addAll(assayRepository.findBySubmissionId(submissionId));
-        submissionEnvelope.getEgaDacPolicies().addAll(egaDacPolicyRepository.findBySubmissionId(submissionId));
-        submissionEnvelope.getEgaDacs().addAll(egaDacRepository.findBySubmissionId(submissionId));
-        submissionEnvelope.getEgaDatasets().addAll(egaDatasetRepository.findBySubmissionId(submissionId));
+        //each query fills a different part of the envelope
+        runAll(Arrays.asList(
+                () -> submissionEnvelope.getAnalyses().addAll(analysisRepository.findBySubmissionId(submissionId)),
+                () -> submissionEnvelope.getAssayData().addAll(assayDataRepository.findBySubmissionId(submissionId)),
+                () -> submissionEnvelope.getAssays().addAll(assayRepository.findBySubmissionId(submissionId)),
+                () -> submissionEnvelope.getEgaDacPolicies().addAll(egaDacPolicyRepository.findBySubmissionId(submissionId)),
+                () -> submissionEnvelope.getEgaDacs().addAll(egaDacRepository.findBySubmissionId(submissionId)),
+                () -> submissionEnvelope.getEgaDatasets().addAll(egaDatasetRepository.findBySubmissionId(submissionId)),
+                () -> {
+                    List<uk.ac.ebi.subs.repository.model.Project> projects = projectRepository.findBySubmissionId(submissionId);
+                    Project project = projects.size() == 0 ? null : projects.get(0);
+                    submissionEnvelope.setProject(project);
+                },
+                () -> submissionEnvelope.getProtocols().addAll(protocolRepository.findBySubmissionId(submissionId)),
+                () -> submissionEnvelope.getSampleGroups().addAll(sampleGroupRepository.findBySubmissionId(submissionId)),
+                () -> submissionEnvelope.getSamples().addAll(sampleRepository.findBySubmissionId(submissionId)),
+                () -> submissionEnvelope.getStudies().addAll(studyRepository.findBySubmissionId(submissionId))
+        ));
+
+        return submissionEnvelope;
+    }
+
+    /**
+     * Run the loads concurrently when a parallelism is configured, one after the other otherwise.
+     * Returns once all of them have completed, rethrowing the first failure.
+     */
+    private void runAll(List<Runnable> loads) {
+        if (taskExecutor == null) {
+            loads.forEach(Runnable::run);
+            return;
+        }
 
-        List<uk.ac.ebi.subs.repository.model.Project> projects = projectRepository.findBySubmissionId(submissionId);
-        Project project = projects.size() == 0 ? null : projects.get(0);
-        submissionEnvelope.setProject(project);
+        CompletableFuture<?>[] futures = loads.stream()
+                .map(load -> CompletableFuture.runAsync(load, taskExecutor))
+                .toArray(CompletableFuture[]::new);
 
-        submissionEnvelope.getProtocols().addAll(protocolRepository.findBySubmissionId(submissionId));
-        submissionEnvelope.getSampleGroups().addAll(sampleGroupRepository.findBySubmissionId(submissionId));
-        submissionEnvelope.getSamples().addAll(sampleRepository.findBySubmissionId(submissionId));
-        submissionEnvelope.getStudies().addAll(studyRepository.findBySubmissionId(submissionId));
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        }
+    }
 
-        return submissionEnvelope;
+    @PreDestroy
+    public void shutdown() {
+        if (taskExecutor != null) {
+            taskExecutor.shutdown();
+        }
     }
 
     public Stream<? extends StoredSubmittable> submissionContents(String submissionId) {
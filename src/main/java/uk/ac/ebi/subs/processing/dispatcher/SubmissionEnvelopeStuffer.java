@@ -3,6 +3,7 @@ package uk.ac.ebi.subs.processing.dispatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+import uk.ac.ebi.subs.data.Submission;
 import uk.ac.ebi.subs.processing.SubmissionEnvelope;
 import uk.ac.ebi.subs.repository.model.Analysis;
 import uk.ac.ebi.subs.repository.model.Assay;
@@ -18,9 +19,14 @@ import uk.ac.ebi.subs.repository.model.StoredSubmittable;
 import uk.ac.ebi.subs.repository.model.Study;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * This helper service function is to add a submittable class to a {@link SubmissionEnvelope}.
+ * The envelope list a submittable goes to is looked up by its class in a precomputed table.
  *
  * Created by davidr on 17/07/2017.
  */
@@ -29,8 +35,22 @@ public class SubmissionEnvelopeStuffer {
 
     private static final Logger logger = LoggerFactory.getLogger(SubmissionEnvelopeStuffer.class);
 
+    private final Map<Class<? extends StoredSubmittable>, BiConsumer<SubmissionEnvelope, StoredSubmittable>> envelopeAdders =
+            buildEnvelopeAdders();
+
+    /**
+     * Start an envelope that holds each submittable only once
+     *
+     * @param submission the submission of the envelope
+     * @return a builder for the envelope
+     */
+    public SubmissionEnvelopeBuilder builder(Submission submission) {
+        return new SubmissionEnvelopeBuilder(this, new SubmissionEnvelope(submission));
+    }
+
     public void addAll(SubmissionEnvelope submissionEnvelope, Collection<? extends StoredSubmittable> storedSubmittables) {
-        logger.info("Adding {} submittables to envelope {}", storedSubmittables.size(), submissionEnvelope);
+        logger.debug("Adding {} submittables to envelope for submission {}",
+                storedSubmittables.size(), submissionEnvelope.getSubmission().getId());
 
         for (StoredSubmittable submittable : storedSubmittables) {
             this.add(submissionEnvelope, submittable);
@@ -38,44 +58,17 @@ public class SubmissionEnvelopeStuffer {
     }
 
     public void add(SubmissionEnvelope submissionEnvelope, StoredSubmittable storedSubmittable) {
-        //we could make this much nicer, but it works for now
-        logger.info("Adding submittable {} to envelope {}", storedSubmittable, submissionEnvelope);
-
-        Class<? extends StoredSubmittable> clazz = storedSubmittable.getClass();
+        BiConsumer<SubmissionEnvelope, StoredSubmittable> envelopeAdder = envelopeAdders.get(storedSubmittable.getClass());
 
-        if (clazz == Analysis.class) {
-            this.add(submissionEnvelope, (Analysis) storedSubmittable);
-        }
-        if (clazz == Assay.class) {
-            this.add(submissionEnvelope, (Assay) storedSubmittable);
-        }
-        if (clazz == AssayData.class) {
-            this.add(submissionEnvelope, (AssayData) storedSubmittable);
-        }
-        if (clazz == EgaDac.class) {
-            this.add(submissionEnvelope, (EgaDac) storedSubmittable);
-        }
-        if (clazz == EgaDacPolicy.class) {
-            this.add(submissionEnvelope, (EgaDacPolicy) storedSubmittable);
-        }
-        if (clazz == EgaDataset.class) {
-            this.add(submissionEnvelope, (EgaDataset) storedSubmittable);
-        }
-        if (clazz == Project.class) {
-            this.add(submissionEnvelope, (Project) storedSubmittable);
-        }
-        if (clazz == Protocol.class) {
-            this.add(submissionEnvelope, (Protocol) storedSubmittable);
-        }
-        if (clazz == Sample.class) {
-            this.add(submissionEnvelope, (Sample) storedSubmittable);
-        }
-        if (clazz == SampleGroup.class) {
-            this.add(submissionEnvelope, (SampleGroup) storedSubmittable);
-        }
-        if (clazz == Study.class) {
-            this.add(submissionEnvelope, (Study) storedSubmittable);
+        if (envelopeAdder == null) {
+            logger.debug("Submittable type {} can not be added to an envelope", storedSubmittable.getClass());
+            return;
         }
+
+        logger.trace("Adding submittable {} to envelope for submission {}",
+                storedSubmittable.getId(), submissionEnvelope.getSubmission().getId());
+
+        envelopeAdder.accept(submissionEnvelope, storedSubmittable);
     }
 
     public void add(SubmissionEnvelope submissionEnvelope, Analysis submittable) {
@@ -121,4 +114,22 @@ public class SubmissionEnvelopeStuffer {
     public void add(SubmissionEnvelope submissionEnvelope, Study submittable) {
         submissionEnvelope.getStudies().add(submittable);
     }
+
+    private Map<Class<? extends StoredSubmittable>, BiConsumer<SubmissionEnvelope, StoredSubmittable>> buildEnvelopeAdders() {
+        Map<Class<? extends StoredSubmittable>, BiConsumer<SubmissionEnvelope, StoredSubmittable>> adders = new HashMap<>();
+
+        adders.put(Analysis.class, (envelope, submittable) -> add(envelope, (Analysis) submittable));
+        adders.put(Assay.class, (envelope, submittable) -> add(envelope, (Assay) submittable));
+        adders.put(AssayData.class, (envelope, submittable) -> add(envelope, (AssayData) submittable));
+        adders.put(EgaDac.class, (envelope, submittable) -> add(envelope, (EgaDac) submittable));
+        adders.put(EgaDacPolicy.class, (envelope, submittable) -> add(envelope, (EgaDacPolicy) submittable));
+        adders.put(EgaDataset.class, (envelope, submittable) -> add(envelope, (EgaDataset) submittable));
+        adders.put(Project.class, (envelope, submittable) -> add(envelope, (Project) submittable));
+        adders.put(Protocol.class, (envelope, submittable) -> add(envelope, (Protocol) submittable));
+        adders.put(Sample.class, (envelope, submittable) -> add(envelope, (Sample) submittable));
+        adders.put(SampleGroup.class, (envelope, submittable) -> add(envelope, (SampleGroup) submittable));
+        adders.put(Study.class, (envelope, submittable) -> add(envelope, (Study) submittable));
+
+        return Collections.unmodifiableMap(adders);
+    }
 }
@@ -0,0 +1,21 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the loading of submission envelopes.
+ * With a parallelism above 0, the contents of each type are loaded concurrently, with at most parallelism queries
+ * running at the same time across all loads. A parallelism of 0 loads them one after the other.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Component
+@ConfigurationProperties(prefix = "usi.submission-envelope.fetch")
+class SubmissionFetchProperties {
+    private int parallelism = 0;
+}
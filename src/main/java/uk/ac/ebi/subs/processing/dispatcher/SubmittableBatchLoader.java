@@ -0,0 +1,68 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.subs.error.EntityNotFoundException;
+import uk.ac.ebi.subs.repository.model.StoredSubmittable;
+import uk.ac.ebi.subs.repository.repos.submittables.SubmittableRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Loads submittables by id in pages, with one $in query per page instead of one query per document.
+ */
+@Component
+public class SubmittableBatchLoader {
+
+    private DispatcherBatchProperties dispatcherBatchProperties;
+    private DispatchMetrics dispatchMetrics;
+
+    public SubmittableBatchLoader(DispatcherBatchProperties dispatcherBatchProperties, DispatchMetrics dispatchMetrics) {
+        this.dispatcherBatchProperties = dispatcherBatchProperties;
+        this.dispatchMetrics = dispatchMetrics;
+    }
+
+    /**
+     * Load the submittables with the given ids and pass each page of them to the consumer
+     *
+     * @param submittableRepository the repository of the submittables' type
+     * @param submittableIds        the ids to load
+     * @param pageConsumer          receives the loaded submittables of each page, in the order of the ids
+     * @throws EntityNotFoundException if any of the ids is not in the database
+     */
+    public void loadPages(SubmittableRepository<? extends StoredSubmittable> submittableRepository,
+                          Collection<String> submittableIds,
+                          Consumer<List<StoredSubmittable>> pageConsumer) {
+        List<String> ids = new ArrayList<>(submittableIds);
+        int batchSize = dispatcherBatchProperties.getSize();
+
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<String> page = ids.subList(from, Math.min(from + batchSize, ids.size()));
+
+            Map<String, StoredSubmittable> submittablesById = new HashMap<>();
+            dispatchMetrics.time(DispatchMetrics.SUBMITTABLE_FETCH, DispatchMetrics.ALL_ARCHIVES, () ->
+                    submittableRepository.findAll(page).forEach(submittable ->
+                            submittablesById.put(submittable.getId(), submittable)
+                    )
+            );
+
+            List<StoredSubmittable> submittables = new ArrayList<>(page.size());
+            for (String submittableId : page) {
+                StoredSubmittable submittable = submittablesById.get(submittableId);
+
+                if (submittable == null) {
+                    throw new EntityNotFoundException(
+                            String.format("Submittable entity with ID: %s is not found in the database.", submittableId));
+                }
+
+                submittables.add(submittable);
+            }
+
+            pageConsumer.accept(submittables);
+        }
+    }
+}
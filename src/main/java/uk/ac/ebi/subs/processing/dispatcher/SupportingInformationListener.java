@@ -0,0 +1,35 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.subs.messaging.Queues;
+import uk.ac.ebi.subs.processing.SubmissionEnvelope;
+import uk.ac.ebi.subs.processing.initialsubmissionprocessing.SubmissionSubmittedPipeline;
+import uk.ac.ebi.subs.processing.initialsubmissionprocessing.SubmittedPipelineProperties;
+
+/**
+ * Asks the archives for the supporting information of submitted submissions, see
+ * {@link DispatcherRabbitBridge#requestSupportingInformation(SubmissionEnvelope)}.
+ * Only registered when the {@link SubmissionSubmittedPipeline} is disabled, as its queue is not declared otherwise.
+ */
+@Component
+@ConditionalOnProperty(name = SubmittedPipelineProperties.ENABLED_PROPERTY, havingValue = "false", matchIfMissing = true)
+public class SupportingInformationListener {
+
+    private DispatcherRabbitBridge dispatcherRabbitBridge;
+
+    public SupportingInformationListener(DispatcherRabbitBridge dispatcherRabbitBridge) {
+        this.dispatcherRabbitBridge = dispatcherRabbitBridge;
+    }
+
+    /**
+     * Determine what supporting information is required from the archives
+     *
+     * @param submissionEnvelopeSent that contains the submission object
+     */
+    @RabbitListener(queues = Queues.SUBMISSION_SUBMITTED_CHECK_SUPPORTING_INFO)
+    public void checkSupportingInfoRequirement(SubmissionEnvelope submissionEnvelopeSent) {
+        dispatcherRabbitBridge.requestSupportingInformation(submissionEnvelopeSent);
+    }
+}
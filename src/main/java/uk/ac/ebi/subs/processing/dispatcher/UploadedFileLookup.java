@@ -0,0 +1,71 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.subs.repository.model.fileupload.File;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Looks up the uploaded files of a submission by filename.
+ *
+ * Only the filenames asked for are queried, with one $in query per page,
+ * and only the fields needed to build an {@link uk.ac.ebi.subs.processing.fileupload.UploadedFile} are read.
+ */
+@Component
+public class UploadedFileLookup {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadedFileLookup.class);
+
+    private MongoTemplate mongoTemplate;
+    private DispatcherBatchProperties dispatcherBatchProperties;
+
+    public UploadedFileLookup(MongoTemplate mongoTemplate, DispatcherBatchProperties dispatcherBatchProperties) {
+        this.mongoTemplate = mongoTemplate;
+        this.dispatcherBatchProperties = dispatcherBatchProperties;
+    }
+
+    /**
+     * Find the uploaded files of a submission with the given filenames
+     *
+     * @param submissionId the ID of the submission
+     * @param filenames    the filenames to look up
+     * @return the files found, by filename
+     */
+    public Map<String, File> findBySubmissionIdAndFilenames(String submissionId, Collection<String> filenames) {
+        List<String> distinctFilenames = new ArrayList<>(new LinkedHashSet<>(filenames));
+        Map<String, File> filesByFilename = new HashMap<>();
+
+        final int batchSize = dispatcherBatchProperties.getSize();
+
+        for (int from = 0; from < distinctFilenames.size(); from += batchSize) {
+            List<String> page = distinctFilenames.subList(from, Math.min(from + batchSize, distinctFilenames.size()));
+
+            Query query = query(where("submissionId").is(submissionId).and("filename").in(page));
+            query.fields()
+                    .include("filename")
+                    .include("targetPath")
+                    .include("submissionId")
+                    .include("totalSize")
+                    .include("checksum");
+
+            mongoTemplate.find(query, File.class).forEach(file -> filesByFilename.put(file.getFilename(), file));
+        }
+
+        logger.debug("Found {} of {} referenced files for submission {}",
+                filesByFilename.size(), distinctFilenames.size(), submissionId);
+
+        return filesByFilename;
+    }
+}
@@ -0,0 +1,22 @@
+package uk.ac.ebi.subs.processing.initialsubmissionprocessing;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the archive assignment.
+ * In bulk mode, the archive is set on the processing statuses of each data type with one update per page of
+ * pageSize submittables, instead of saving every processing status.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Component
+@ConfigurationProperties(prefix = "usi.archive-assignment")
+class ArchiveAssignmentProperties {
+    private boolean bulk = true;
+    private int pageSize = 1000;
+}
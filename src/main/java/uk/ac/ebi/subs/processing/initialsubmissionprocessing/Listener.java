@@ -4,6 +4,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.rabbit.core.RabbitMessagingTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import uk.ac.ebi.subs.messaging.Exchanges;
 import uk.ac.ebi.subs.messaging.Topics;
@@ -12,8 +13,10 @@ import uk.ac.ebi.subs.repository.model.Submission;
 
 /**
  * This Spring component contains listeners related to {@link Submission} assign to archives operation.
+ * Only registered when the {@link SubmissionSubmittedPipeline} is disabled, as its queue is not declared otherwise.
  */
 @Component
+@ConditionalOnProperty(name = SubmittedPipelineProperties.ENABLED_PROPERTY, havingValue = "false", matchIfMissing = true)
 public class Listener {
 
     private static final Logger logger = LoggerFactory.getLogger(Listener.class);
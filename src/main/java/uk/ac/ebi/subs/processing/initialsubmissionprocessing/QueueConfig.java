@@ -4,6 +4,7 @@ import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import uk.ac.ebi.subs.messaging.Queues;
@@ -15,18 +16,39 @@ import uk.ac.ebi.subs.messaging.Queues;
 public class QueueConfig {
 
     public static final String SUBMISSION_ARCHIVE_ASSIGNMENT = "usi-submission-archive-assignment";
+    public static final String SUBMISSION_SUBMITTED_PIPELINE = "usi-submission-submitted-pipeline";
 
     /**
-     * Queue for submissions to receive archive assignments
+     * Queue for submissions to receive archive assignments, only declared when the {@link SubmissionSubmittedPipeline}
+     * is disabled
      * @return
      */
 
     @Bean
+    @ConditionalOnProperty(name = SubmittedPipelineProperties.ENABLED_PROPERTY, havingValue = "false", matchIfMissing = true)
     Queue archiveAssignmentQueue() {return Queues.buildQueueWithDlx(SUBMISSION_ARCHIVE_ASSIGNMENT);}
 
     @Bean
+    @ConditionalOnProperty(name = SubmittedPipelineProperties.ENABLED_PROPERTY, havingValue = "false", matchIfMissing = true)
     Binding archiveAssignmentBinding(Queue archiveAssignmentQueue, TopicExchange submissionExchange){
         return BindingBuilder.bind(archiveAssignmentQueue).to(submissionExchange).with(Queues.SUBMISSION_SUBMITTED_ROUTING_KEY);
     }
 
+    /**
+     * Queue for submitted submissions to be handled by the {@link SubmissionSubmittedPipeline}, only declared when
+     * the pipeline is enabled
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(name = SubmittedPipelineProperties.ENABLED_PROPERTY, havingValue = "true")
+    Queue submittedPipelineQueue() {
+        return Queues.buildQueueWithDlx(SUBMISSION_SUBMITTED_PIPELINE);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = SubmittedPipelineProperties.ENABLED_PROPERTY, havingValue = "true")
+    Binding submittedPipelineBinding(Queue submittedPipelineQueue, TopicExchange submissionExchange) {
+        return BindingBuilder.bind(submittedPipelineQueue).to(submissionExchange).with(Queues.SUBMISSION_SUBMITTED_ROUTING_KEY);
+    }
+
 }
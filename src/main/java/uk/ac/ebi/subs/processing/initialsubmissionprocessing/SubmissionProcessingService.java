@@ -3,21 +3,38 @@ package uk.ac.ebi.subs.processing.initialsubmissionprocessing;
 import lombok.AllArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import uk.ac.ebi.subs.data.component.Archive;
+import uk.ac.ebi.subs.data.status.ProcessingStatusEnum;
 import uk.ac.ebi.subs.data.status.SubmissionStatusEnum;
 import uk.ac.ebi.subs.error.EntityNotFoundException;
+import uk.ac.ebi.subs.processing.SubmittableClasses;
 import uk.ac.ebi.subs.processing.dispatcher.SubmissionEnvelopeService;
 import uk.ac.ebi.subs.repository.model.DataType;
 import uk.ac.ebi.subs.repository.model.ProcessingStatus;
+import uk.ac.ebi.subs.repository.model.StoredSubmittable;
 import uk.ac.ebi.subs.repository.model.Submission;
 import uk.ac.ebi.subs.repository.model.SubmissionStatus;
 import uk.ac.ebi.subs.repository.repos.SubmissionRepository;
 import uk.ac.ebi.subs.repository.repos.status.ProcessingStatusRepository;
 import uk.ac.ebi.subs.repository.repos.status.SubmissionStatusRepository;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
 import static uk.ac.ebi.subs.processing.initialsubmissionprocessing.SubmissionStatusMessages.PROCESSING_STARTED_MESSAGE;
 
 /**
@@ -30,23 +47,151 @@ public class SubmissionProcessingService {
 
     private static final Logger logger = LoggerFactory.getLogger(SubmissionProcessingService.class);
 
+    private static final Set<String> ALL_PROCESSING_STATUSES = Arrays.stream(ProcessingStatusEnum.values())
+            .map(ProcessingStatusEnum::name)
+            .collect(Collectors.toSet());
+
     private SubmissionEnvelopeService submissionEnvelopeService;
     private ProcessingStatusRepository processingStatusRepository;
     private SubmissionStatusRepository submissionStatusRepository;
     private SubmissionRepository submissionRepository;
+    private MongoTemplate mongoTemplate;
+    private ArchiveAssignmentProperties archiveAssignmentProperties;
+    private List<Class<? extends StoredSubmittable>> submittablesClassList;
 
+    /**
+     * Set the archive of each submittable's processing status, as given by the submittable's data type.
+     * In bulk mode, the processing statuses of each data type are updated together, the submittables not covered
+     * that way are then looked up by ID, reading only their data type. Submittables without a data type or archive
+     * are left without an archive.
+     *
+     * @param submissionId the ID of the submission
+     */
     public void assignArchives(String submissionId) {
+        assignArchives(submissionId, archiveAssignmentProperties.isBulk()
+                ? processingStatusesOf(submissionId)
+                : Collections.emptyList());
+    }
+
+    /**
+     * Same as {@link #assignArchives(String)}, with the processing statuses of the submission already loaded
+     *
+     * @param submissionId       the ID of the submission
+     * @param processingStatuses the processing statuses of the submission, see {@link #processingStatusesOf(String)}
+     */
+    public void assignArchives(String submissionId, List<ProcessingStatus> processingStatuses) {
         logger.info("assigning archives for submission {}", submissionId);
 
-        submissionEnvelopeService.submissionContents(submissionId)
-                .forEach(storedSubmittable -> {
-                    DataType dataType = storedSubmittable.getDataType();
-                    Archive archive = dataType.getArchive();
+        if (!archiveAssignmentProperties.isBulk()) {
+            submissionEnvelopeService.submissionContents(submissionId)
+                    .forEach(storedSubmittable -> {
+                        Archive archive = archiveOf(storedSubmittable);
+                        if (archive == null) {
+                            return;
+                        }
+
+                        ProcessingStatus processingStatus = storedSubmittable.getProcessingStatus();
+                        processingStatus.setArchive(archive.name());
+                        processingStatusRepository.save(processingStatus);
+                    });
+            return;
+        }
+
+        Set<String> assignedSubmittableIds = assignArchivesInBulk(submissionId);
+
+        List<ProcessingStatus> unassignedProcessingStatuses = processingStatuses.stream()
+                .filter(processingStatus -> !assignedSubmittableIds.contains(processingStatus.getSubmittableId()))
+                .collect(Collectors.toList());
+
+        Map<Class<? extends StoredSubmittable>, List<String>> leftoverSubmittableIds =
+                SubmittableClasses.submittableIdsByClass(submittablesClassList, unassignedProcessingStatuses);
+
+        leftoverSubmittableIds.forEach((submittableClass, submittableIds) ->
+                assignArchivesById(submissionId, submittableClass, submittableIds)
+        );
+    }
+
+    private Set<String> assignArchivesInBulk(String submissionId) {
+        Map<DataType, Set<String>> dataTypesWithSubmittableIds =
+                processingStatusRepository.summariseDataTypesWithSubmittableIds(submissionId, ALL_PROCESSING_STATUSES);
+
+        Set<String> assignedSubmittableIds = new HashSet<>();
+
+        dataTypesWithSubmittableIds.forEach((dataType, submittableIds) -> {
+            if (dataType == null || dataType.getArchive() == null) {
+                return;
+            }
+
+            final String archiveName = dataType.getArchive().name();
+            List<String> ids = new ArrayList<>(submittableIds);
+            long updatedCount = 0;
+
+            for (int from = 0; from < ids.size(); from += archiveAssignmentProperties.getPageSize()) {
+                List<String> page = ids.subList(from, Math.min(from + archiveAssignmentProperties.getPageSize(), ids.size()));
+
+                updatedCount += mongoTemplate.updateMulti(
+                        query(where("submissionId").is(submissionId).and("submittableId").in(page)),
+                        new Update().set("archive", archiveName),
+                        ProcessingStatus.class
+                ).getN();
+            }
 
-                    ProcessingStatus processingStatus = storedSubmittable.getProcessingStatus();
-                    processingStatus.setArchive(archive.name());
-                    processingStatusRepository.save(processingStatus);
-                });
+            assignedSubmittableIds.addAll(submittableIds);
+            logger.debug("assigned {} to {} {} of submission {}", archiveName, updatedCount, dataType.getId(), submissionId);
+        });
+
+        return assignedSubmittableIds;
+    }
+
+    /**
+     * The processing statuses of a submission, with only their submittable ID, submittable type and status
+     *
+     * @param submissionId the ID of the submission
+     * @return the processing statuses of the submission's contents
+     */
+    public List<ProcessingStatus> processingStatusesOf(String submissionId) {
+        Query query = query(where("submissionId").is(submissionId));
+        query.fields().include("submittableId").include("submittableType").include("status");
+
+        return mongoTemplate.find(query, ProcessingStatus.class);
+    }
+
+    private void assignArchivesById(String submissionId, Class<? extends StoredSubmittable> submittableClass,
+                                    List<String> submittableIds) {
+        for (int from = 0; from < submittableIds.size(); from += archiveAssignmentProperties.getPageSize()) {
+            List<String> page = submittableIds.subList(
+                    from, Math.min(from + archiveAssignmentProperties.getPageSize(), submittableIds.size()));
+
+            Query query = query(where("_id").in(page));
+            query.fields().include("_id").include("dataType");
+
+            Map<Archive, List<String>> idsByArchive = new HashMap<>();
+            for (StoredSubmittable item : mongoTemplate.find(query, submittableClass)) {
+                Archive archive = archiveOf(item);
+                if (archive != null) {
+                    idsByArchive.computeIfAbsent(archive, key -> new ArrayList<>()).add(item.getId());
+                }
+            }
+
+            idsByArchive.forEach((archive, ids) -> mongoTemplate.updateMulti(
+                    query(where("submissionId").is(submissionId).and("submittableId").in(ids)),
+                    new Update().set("archive", archive.name()),
+                    ProcessingStatus.class
+            ));
+        }
+    }
+
+    private Archive archiveOf(StoredSubmittable storedSubmittable) {
+        DataType dataType = storedSubmittable.getDataType();
+        Archive archive = (dataType == null) ? null : dataType.getArchive();
+
+        if (archive == null) {
+            logger.warn("no archive to assign to {} {}, its data type {} has none",
+                    storedSubmittable.getClass().getSimpleName(), storedSubmittable.getId(),
+                    (dataType == null) ? null : dataType.getId());
+        }
+
+        return archive;
     }
 
     public void setSubmissionStatusToProcessing(String submissionId) {
@@ -54,6 +199,10 @@ public class SubmissionProcessingService {
                 .orElseThrow(() -> new EntityNotFoundException(
                         String.format("Submission entity with ID: %s is not found in the database.", submissionId)));
 
+        setSubmissionStatusToProcessing(submission);
+    }
+
+    public void setSubmissionStatusToProcessing(Submission submission) {
         SubmissionStatus submissionStatus = submission.getSubmissionStatus();
         submissionStatus.setStatus(SubmissionStatusEnum.Processing);
         submissionStatus.setMessage(PROCESSING_STARTED_MESSAGE);
@@ -0,0 +1,91 @@
+package uk.ac.ebi.subs.processing.initialsubmissionprocessing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitMessagingTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.subs.apisupport.ApiSupportService;
+import uk.ac.ebi.subs.data.status.SubmissionStatusEnum;
+import uk.ac.ebi.subs.error.EntityNotFoundException;
+import uk.ac.ebi.subs.messaging.Exchanges;
+import uk.ac.ebi.subs.messaging.Topics;
+import uk.ac.ebi.subs.processing.SubmissionEnvelope;
+import uk.ac.ebi.subs.processing.dispatcher.DispatcherRabbitBridge;
+import uk.ac.ebi.subs.repository.model.ProcessingStatus;
+import uk.ac.ebi.subs.repository.model.Submission;
+import uk.ac.ebi.subs.repository.repos.SubmissionRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Handles a submitted {@link Submission} in a single pass, instead of the three listeners bound to the submitted
+ * routing key each loading the submission on their own.
+ *
+ * The submission is loaded once, and left alone if it is still in draft in the database. Then the stages run in
+ * order on the same consumer:
+ * processing status, archive assignment, draft to submitted transition of the contents and supporting information
+ * request. The processing statuses of the contents are read once, projected to the fields the stages need, and
+ * shared by the archive assignment and the draft to submitted transition. The processing updated event is only sent once all stages have completed, so the dispatcher always sees
+ * the contents with their archive and submitted status. When a stage fails, the message is redelivered and the
+ * stages run again, all of them can be repeated safely.
+ */
+@Component
+@ConditionalOnProperty(name = SubmittedPipelineProperties.ENABLED_PROPERTY, havingValue = "true")
+public class SubmissionSubmittedPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubmissionSubmittedPipeline.class);
+
+    private RabbitMessagingTemplate rabbitMessagingTemplate;
+    private SubmissionRepository submissionRepository;
+    private SubmissionProcessingService submissionProcessingService;
+    private ApiSupportService apiSupportService;
+    private DispatcherRabbitBridge dispatcherRabbitBridge;
+
+    public SubmissionSubmittedPipeline(RabbitMessagingTemplate rabbitMessagingTemplate,
+                                       SubmissionRepository submissionRepository,
+                                       SubmissionProcessingService submissionProcessingService,
+                                       ApiSupportService apiSupportService,
+                                       DispatcherRabbitBridge dispatcherRabbitBridge) {
+        this.rabbitMessagingTemplate = rabbitMessagingTemplate;
+        this.submissionRepository = submissionRepository;
+        this.submissionProcessingService = submissionProcessingService;
+        this.apiSupportService = apiSupportService;
+        this.dispatcherRabbitBridge = dispatcherRabbitBridge;
+    }
+
+    @RabbitListener(queues = QueueConfig.SUBMISSION_SUBMITTED_PIPELINE)
+    public void onSubmissionSubmitted(SubmissionEnvelope submissionEnvelope) {
+        final String submissionId = submissionEnvelope.getSubmission().getId();
+
+        Submission submission = Optional.ofNullable(submissionRepository.findOne(submissionId))
+                .orElseThrow(() -> new EntityNotFoundException(
+                        String.format("Submission entity with ID: %s is not found in the database.", submissionId)));
+
+        if (SubmissionStatusEnum.Draft.name().equals(submission.getSubmissionStatus().getStatus())) {
+            logger.info("not safe to process submission contents, still in draft in db {}", submissionId);
+            return;
+        }
+
+        submissionProcessingService.setSubmissionStatusToProcessing(submission);
+
+        List<ProcessingStatus> processingStatuses = submissionProcessingService.processingStatusesOf(submissionId);
+
+        submissionProcessingService.assignArchives(submissionId, processingStatuses);
+        logger.info("archives assigned {}", submissionId);
+
+        apiSupportService.markDraftContentsAsSubmitted(submission, processingStatuses);
+
+        dispatcherRabbitBridge.requestSupportingInformation(submissionEnvelope);
+
+        rabbitMessagingTemplate.convertAndSend(
+                Exchanges.SUBMISSIONS,
+                Topics.EVENT_SUBMISSION_PROCESSING_UPDATED,
+                submissionEnvelope
+        );
+
+        logger.info("submitted submission {} processed", submissionId);
+    }
+}
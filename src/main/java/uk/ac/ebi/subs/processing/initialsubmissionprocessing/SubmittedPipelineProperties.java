@@ -0,0 +1,23 @@
+package uk.ac.ebi.subs.processing.initialsubmissionprocessing;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the submitted submission pipeline.
+ * When enabled, a submitted submission is handled by the {@link SubmissionSubmittedPipeline} in one pass, and the
+ * separate archive assignment, mark submittables and supporting information queues and listeners are not set up.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Component
+@ConfigurationProperties(prefix = "usi.submitted-pipeline")
+public class SubmittedPipelineProperties {
+    public static final String ENABLED_PROPERTY = "usi.submitted-pipeline.enabled";
+
+    private boolean enabled = false;
+}
@@ -0,0 +1,23 @@
+package uk.ac.ebi.subs.progressmonitor;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the certificate envelope batching.
+ * Envelopes of the same submission arriving within the window (in milliseconds) are applied together, a batch is
+ * applied early once it holds maxEnvelopes envelopes. A window of 0 turns batching off.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Component
+@ConfigurationProperties(prefix = "usi.progress-monitor.batching")
+class CertificateBatchingProperties {
+    private long window = 0;
+    private int maxEnvelopes = 50;
+    private int poolSize = 2;
+}
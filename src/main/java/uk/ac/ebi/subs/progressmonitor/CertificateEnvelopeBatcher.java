@@ -0,0 +1,191 @@
+package uk.ac.ebi.subs.progressmonitor;
+
+import com.rabbitmq.client.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.subs.processing.ProcessingCertificate;
+import uk.ac.ebi.subs.processing.ProcessingCertificateEnvelope;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Accumulates the certificate envelopes of a submission into batches.
+ *
+ * The first envelope of a submission opens a batch that is applied at the end of the window, or as soon as it holds
+ * the maximum number of envelopes. The certificates of a batch are applied as one envelope, in arrival order, so the
+ * last certificate of a submittable still wins. The messages of a batch are acknowledged only once it has been
+ * applied, and rejected (to the dead letter exchange) when it fails, so no certificate is lost.
+ * The batches of a submission are applied one after the other, in the order they were closed, so an older batch
+ * never overwrites the statuses set by a newer one.
+ */
+@Component
+public class CertificateEnvelopeBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(CertificateEnvelopeBatcher.class);
+
+    private final Map<String, Batch> pendingBatches = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Void>> lastAppliedBatches = new ConcurrentHashMap<>();
+
+    private CertificateBatchingProperties certificateBatchingProperties;
+    private ThreadPoolTaskScheduler taskScheduler;
+
+    public CertificateEnvelopeBatcher(CertificateBatchingProperties certificateBatchingProperties) {
+        this.certificateBatchingProperties = certificateBatchingProperties;
+
+        this.taskScheduler = new ThreadPoolTaskScheduler();
+        this.taskScheduler.setPoolSize(certificateBatchingProperties.getPoolSize());
+        this.taskScheduler.setThreadNamePrefix("certificate-batcher-");
+        this.taskScheduler.setWaitForTasksToCompleteOnShutdown(true);
+        this.taskScheduler.setAwaitTerminationSeconds(60);
+        this.taskScheduler.initialize();
+    }
+
+    public boolean isEnabled() {
+        return certificateBatchingProperties.getWindow() > 0;
+    }
+
+    /**
+     * Add a received envelope to the batch of its submission
+     *
+     * @param envelope    the received envelope
+     * @param channel     the channel the envelope was received on
+     * @param deliveryTag the delivery tag of the message, acknowledged once the batch is applied
+     * @param apply       applies the combined envelope of a batch
+     */
+    public void submit(ProcessingCertificateEnvelope envelope, Channel channel, long deliveryTag,
+                       Consumer<ProcessingCertificateEnvelope> apply) {
+        final String submissionId = envelope.getSubmissionId();
+        final Batch[] fullBatch = new Batch[1];
+
+        pendingBatches.compute(submissionId, (id, batch) -> {
+            if (batch == null) {
+                batch = new Batch(submissionId);
+                Batch openedBatch = batch;
+                taskScheduler.schedule(
+                        () -> flush(openedBatch, apply),
+                        new Date(System.currentTimeMillis() + certificateBatchingProperties.getWindow())
+                );
+            }
+
+            batch.add(envelope, channel, deliveryTag);
+
+            if (batch.size() >= certificateBatchingProperties.getMaxEnvelopes()) {
+                fullBatch[0] = batch;
+                return null;
+            }
+            return batch;
+        });
+
+        if (fullBatch[0] != null) {
+            applyAfterPreviousBatches(fullBatch[0], apply);
+        }
+    }
+
+    int pendingBatchCount() {
+        return pendingBatches.size();
+    }
+
+    void flush(Batch batch, Consumer<ProcessingCertificateEnvelope> apply) {
+        if (pendingBatches.remove(batch.submissionId, batch)) {
+            applyAfterPreviousBatches(batch, apply);
+        }
+    }
+
+    private void applyAfterPreviousBatches(Batch batch, Consumer<ProcessingCertificateEnvelope> apply) {
+        CompletableFuture<Void> applied = lastAppliedBatches.compute(batch.submissionId, (id, previous) ->
+                previous == null
+                        ? CompletableFuture.runAsync(() -> apply(batch, apply), taskScheduler)
+                        : previous.handleAsync((result, failure) -> {
+                            apply(batch, apply);
+                            return null;
+                        }, taskScheduler)
+        );
+
+        applied.whenComplete((result, failure) -> lastAppliedBatches.remove(batch.submissionId, applied));
+    }
+
+    private void apply(Batch batch, Consumer<ProcessingCertificateEnvelope> apply) {
+        logger.debug("applying {} certificate envelopes of submission {}", batch.size(), batch.submissionId);
+
+        try {
+            apply.accept(batch.combinedEnvelope());
+        } catch (RuntimeException e) {
+            logger.error("certificate batch of submission {} failed, rejecting {} messages", batch.submissionId, batch.size(), e);
+            batch.deliveries.forEach(delivery -> delivery.reject());
+            return;
+        }
+
+        batch.deliveries.forEach(delivery -> delivery.ack());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        taskScheduler.shutdown();
+    }
+
+    static class Batch {
+        private final String submissionId;
+        private final List<ProcessingCertificateEnvelope> envelopes = new ArrayList<>();
+        private final List<Delivery> deliveries = new ArrayList<>();
+
+        Batch(String submissionId) {
+            this.submissionId = submissionId;
+        }
+
+        void add(ProcessingCertificateEnvelope envelope, Channel channel, long deliveryTag) {
+            envelopes.add(envelope);
+            deliveries.add(new Delivery(channel, deliveryTag));
+        }
+
+        int size() {
+            return envelopes.size();
+        }
+
+        ProcessingCertificateEnvelope combinedEnvelope() {
+            List<ProcessingCertificate> certificates = new ArrayList<>();
+            envelopes.forEach(envelope -> certificates.addAll(envelope.getProcessingCertificates()));
+
+            ProcessingCertificateEnvelope combinedEnvelope = new ProcessingCertificateEnvelope();
+            combinedEnvelope.setSubmissionId(submissionId);
+            combinedEnvelope.setProcessingCertificates(certificates);
+            combinedEnvelope.setJWTToken(envelopes.get(envelopes.size() - 1).getJWTToken());
+            return combinedEnvelope;
+        }
+    }
+
+    private static class Delivery {
+        private final Channel channel;
+        private final long deliveryTag;
+
+        Delivery(Channel channel, long deliveryTag) {
+            this.channel = channel;
+            this.deliveryTag = deliveryTag;
+        }
+
+        void ack() {
+            try {
+                channel.basicAck(deliveryTag, false);
+            } catch (IOException e) {
+                logger.error("could not acknowledge message {}", deliveryTag, e);
+            }
+        }
+
+        void reject() {
+            try {
+                channel.basicNack(deliveryTag, false, false);
+            } catch (IOException e) {
+                logger.error("could not reject message {}", deliveryTag, e);
+            }
+        }
+    }
+}
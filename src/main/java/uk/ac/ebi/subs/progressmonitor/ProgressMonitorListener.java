@@ -1,9 +1,12 @@
 package uk.ac.ebi.subs.progressmonitor;
 
+import com.rabbitmq.client.Channel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.rabbit.core.RabbitMessagingTemplate;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 import uk.ac.ebi.subs.error.EntityNotFoundException;
 import uk.ac.ebi.subs.messaging.Exchanges;
@@ -24,15 +27,17 @@ import java.util.Optional;
 public class ProgressMonitorListener {
     private static final Logger logger = LoggerFactory.getLogger(ProgressMonitorListener.class);
 
-    public ProgressMonitorListener(ProgressMonitorService monitorService, RabbitMessagingTemplate rabbitMessagingTemplate, SubmissionRepository submissionRepository) {
+    public ProgressMonitorListener(ProgressMonitorService monitorService, RabbitMessagingTemplate rabbitMessagingTemplate, SubmissionRepository submissionRepository, CertificateEnvelopeBatcher certificateEnvelopeBatcher) {
         this.monitorService = monitorService;
         this.rabbitMessagingTemplate = rabbitMessagingTemplate;
         this.submissionRepository = submissionRepository;
+        this.certificateEnvelopeBatcher = certificateEnvelopeBatcher;
     }
 
     private ProgressMonitorService monitorService;
     private RabbitMessagingTemplate rabbitMessagingTemplate;
     private SubmissionRepository submissionRepository;
+    private CertificateEnvelopeBatcher certificateEnvelopeBatcher;
 
     @RabbitListener(queues = Queues.SUBMISSION_SUPPORTING_INFO_PROVIDED)
     public void storeSupportingInformation(SubmissionEnvelope submissionEnvelope) {
@@ -41,8 +46,28 @@ public class ProgressMonitorListener {
         sendSubmissionUpdated(submissionEnvelope.getSubmission().getId(), submissionEnvelope.getJWTToken());
     }
 
-    @RabbitListener(queues = Queues.SUBMISSION_MONITOR)
-    public void updateSubmittablesFromCertificates(ProcessingCertificateEnvelope processingCertificateEnvelope) {
+    /**
+     * Apply the certificates sent by an archive agent
+     * <p>
+     * When batching is enabled, the envelopes of a submission are accumulated and applied together, with a single
+     * update message per batch. The message is then acknowledged by the {@link CertificateEnvelopeBatcher}.
+     *
+     * @param processingCertificateEnvelope the certificates
+     * @param channel the channel the message was received on
+     * @param deliveryTag the delivery tag of the message
+     */
+    @RabbitListener(queues = Queues.SUBMISSION_MONITOR, containerFactory = ProgressMonitorQueueConfig.MONITOR_CONTAINER_FACTORY)
+    public void updateSubmittablesFromCertificates(ProcessingCertificateEnvelope processingCertificateEnvelope,
+                                                   Channel channel,
+                                                   @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
+        if (certificateEnvelopeBatcher.isEnabled()) {
+            certificateEnvelopeBatcher.submit(processingCertificateEnvelope, channel, deliveryTag, this::applyCertificates);
+        } else {
+            applyCertificates(processingCertificateEnvelope);
+        }
+    }
+
+    void applyCertificates(ProcessingCertificateEnvelope processingCertificateEnvelope) {
         monitorService.updateSubmittablesFromCertificates(processingCertificateEnvelope);
 
         sendSubmissionUpdated(processingCertificateEnvelope.getSubmissionId(), processingCertificateEnvelope.getJWTToken());
@@ -0,0 +1,39 @@
+package uk.ac.ebi.subs.progressmonitor;
+
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * This configuration class responsible for the RabbitMQ configuration for the progress monitor.
+ */
+@Configuration
+public class ProgressMonitorQueueConfig {
+
+    static final String MONITOR_CONTAINER_FACTORY = "progressMonitorListenerContainerFactory";
+
+    /**
+     * Listener container factory of the monitor queue.
+     * When certificate batching is enabled, messages are acknowledged by the {@link CertificateEnvelopeBatcher} once
+     * their batch is applied, and enough of them are prefetched to fill a batch.
+     * @return
+     */
+    @Bean(name = MONITOR_CONTAINER_FACTORY)
+    SimpleRabbitListenerContainerFactory progressMonitorListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            CertificateBatchingProperties certificateBatchingProperties) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+
+        if (certificateBatchingProperties.getWindow() > 0) {
+            factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+            factory.setPrefetchCount(certificateBatchingProperties.getMaxEnvelopes());
+        }
+
+        return factory;
+    }
+}
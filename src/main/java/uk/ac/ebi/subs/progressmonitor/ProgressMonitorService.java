@@ -1,7 +1,13 @@
 package uk.ac.ebi.subs.progressmonitor;
 
+import com.mongodb.BulkWriteResult;
+import lombok.Data;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import uk.ac.ebi.subs.processing.ProcessingCertificate;
 import uk.ac.ebi.subs.processing.ProcessingCertificateEnvelope;
@@ -9,24 +15,34 @@ import uk.ac.ebi.subs.processing.SubmissionEnvelope;
 import uk.ac.ebi.subs.repository.model.ProcessingStatus;
 import uk.ac.ebi.subs.repository.processing.SupportingSample;
 import uk.ac.ebi.subs.repository.processing.SupportingSampleRepository;
-import uk.ac.ebi.subs.repository.repos.status.ProcessingStatusRepository;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
 @Service
 public class ProgressMonitorService {
     private static final Logger logger = LoggerFactory.getLogger(ProgressMonitorService.class);
 
     private SupportingSampleRepository supportingSampleRepository;
-    private ProcessingStatusRepository processingStatusRepository;
+    private MongoTemplate mongoTemplate;
     private SubmittablesBulkOperations submittablesBulkOperations;
+    private SubmissionStatusCounter submissionStatusCounter;
 
-    public ProgressMonitorService(SupportingSampleRepository supportingSampleRepository, ProcessingStatusRepository processingStatusRepository, SubmittablesBulkOperations submittablesBulkOperations) {
+    public ProgressMonitorService(SupportingSampleRepository supportingSampleRepository, MongoTemplate mongoTemplate, SubmittablesBulkOperations submittablesBulkOperations, SubmissionStatusCounter submissionStatusCounter) {
         this.supportingSampleRepository = supportingSampleRepository;
-        this.processingStatusRepository = processingStatusRepository;
+        this.mongoTemplate = mongoTemplate;
         this.submittablesBulkOperations = submittablesBulkOperations;
+        this.submissionStatusCounter = submissionStatusCounter;
     }
 
     /**
@@ -53,6 +69,10 @@ public class ProgressMonitorService {
 
     /**
      * update accessions + statuses using information in a processingCertificateEnvelop
+     * The details of the processing statuses are updated with one unordered bulk write, certificates for submittables
+     * without a processing status are skipped.
+     * The statuses are then changed with one conditional update per pair of current and new status, so the status
+     * counts of the submission are changed by what the updates actually changed.
      * @param processingCertificateEnvelope container contains the processing related information of a given submission
      */
     public void updateSubmittablesFromCertificates(ProcessingCertificateEnvelope processingCertificateEnvelope) {
@@ -60,34 +80,129 @@ public class ProgressMonitorService {
         logger.info("received agent results for submission {} with {} certificates ",
                 processingCertificateEnvelope.getSubmissionId(), processingCertificateEnvelope.getProcessingCertificates().size());
 
-
+        //the last certificate of a submittable wins, as when they were applied one by one
+        Map<String, ProcessingCertificate> certificatesBySubmittableId = new LinkedHashMap<>();
         for (ProcessingCertificate cert : processingCertificateEnvelope.getProcessingCertificates()) {
 
             if (cert.getSubmittableId() == null) {
                 throw new NullSubmittableIdException("Processing Certificate Submittable Id can't be NULL.");
             }
 
-            ProcessingStatus processingStatus = processingStatusRepository.findBySubmittableId(cert.getSubmittableId());
+            certificatesBySubmittableId.put(cert.getSubmittableId(), cert);
+        }
+
+        Map<String, String> currentStatuses = new HashMap<>();
+        Map<String, String> submittableTypes = new HashMap<>();
+        readCurrentStatuses(certificatesBySubmittableId.keySet(), currentStatuses, submittableTypes);
 
-            if (processingStatus == null) {
+        Map<StatusChange, List<String>> submittableIdsByStatusChange = new LinkedHashMap<>();
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProcessingStatus.class);
+        Date lastModifiedDate = new Date();
+
+        for (ProcessingCertificate cert : certificatesBySubmittableId.values()) {
+
+            if (!currentStatuses.containsKey(cert.getSubmittableId())) {
                 continue;
             }
 
+            Update update = new Update();
+
             if (cert.getAccession() != null) {
-                processingStatus.setAccession(cert.getAccession());
+                update.set("accession", cert.getAccession());
             }
 
-            processingStatus.setArchive(cert.getArchive().name());
-            processingStatus.setMessage(cert.getMessage());
+            update.set("archive", cert.getArchive().name());
+            update.set("message", cert.getMessage());
+
+            if (cert.getProcessingStatus() != null) {
+                submittableIdsByStatusChange
+                        .computeIfAbsent(
+                                new StatusChange(currentStatuses.get(cert.getSubmittableId()), cert.getProcessingStatus().name()),
+                                statusChange -> new ArrayList<>())
+                        .add(cert.getSubmittableId());
+            }
+
+            update.set("lastModifiedBy", cert.getArchive().name());
+            update.set("lastModifiedDate", lastModifiedDate);
+
+            ops.updateOne(query(where("submittableId").is(cert.getSubmittableId())), update);
+        }
+
+        if (!currentStatuses.isEmpty()) {
+            BulkWriteResult writeResult = ops.execute();
+            logger.info("Applied certificates to processing statuses of submission {}, {} certs, matched {}, modified {}",
+                    processingCertificateEnvelope.getSubmissionId(),
+                    certificatesBySubmittableId.size(),
+                    writeResult.getMatchedCount(),
+                    writeResult.getModifiedCount()
+            );
+        }
+
+        submissionStatusCounter.countStatusWrites(processingCertificateEnvelope.getSubmissionId(), () -> {
+            Map<String, Long> statusCountDeltas = new HashMap<>();
+            submittableIdsByStatusChange.forEach((statusChange, submittableIds) ->
+                    changeStatuses(statusChange, submittableIds, statusCountDeltas)
+            );
+            return statusCountDeltas;
+        });
 
-            processingStatus.setStatus(cert.getProcessingStatus());
+        submittablesBulkOperations.applyProcessingCertificates(processingCertificateEnvelope, submittableTypes);
+    }
+
+    /**
+     * Move the processing statuses of some submittables from the status they were read with to a new status.
+     * Statuses changed by someone else since they were read are moved one by one, counting from the status
+     * they had when they were moved.
+     */
+    private void changeStatuses(StatusChange statusChange, List<String> submittableIds, Map<String, Long> statusCountDeltas) {
+        Update update = Update.update("status", statusChange.getToStatus());
 
-            processingStatus.setLastModifiedBy(cert.getArchive().name());
-            processingStatus.setLastModifiedDate(new Date());
+        if (!Objects.equals(statusChange.getFromStatus(), statusChange.getToStatus())) {
+            long changedCount = mongoTemplate.updateMulti(
+                    query(where("submittableId").in(submittableIds).and("status").is(statusChange.getFromStatus())),
+                    update,
+                    ProcessingStatus.class
+            ).getN();
 
-            processingStatusRepository.save(processingStatus);
+            statusCountDeltas.merge(statusChange.getFromStatus(), -changedCount, Long::sum);
+            statusCountDeltas.merge(statusChange.getToStatus(), changedCount, Long::sum);
+
+            if (changedCount == submittableIds.size()) {
+                return;
+            }
         }
 
-        submittablesBulkOperations.applyProcessingCertificates(processingCertificateEnvelope);
+        Query notYetChanged = query(where("submittableId").in(submittableIds).and("status").nin(
+                statusChange.getFromStatus(), statusChange.getToStatus()));
+        notYetChanged.fields().include("submittableId");
+
+        for (ProcessingStatus raced : mongoTemplate.find(notYetChanged, ProcessingStatus.class)) {
+            ProcessingStatus before = mongoTemplate.findAndModify(
+                    query(where("submittableId").is(raced.getSubmittableId()).and("status").ne(statusChange.getToStatus())),
+                    update,
+                    ProcessingStatus.class
+            );
+
+            if (before != null) {
+                SubmissionStatusCounter.addStatusChange(statusCountDeltas, before.getStatus(), statusChange.getToStatus());
+            }
+        }
+    }
+
+    private void readCurrentStatuses(Collection<String> submittableIds,
+                                     Map<String, String> currentStatuses, Map<String, String> submittableTypes) {
+        Query query = query(where("submittableId").in(submittableIds));
+        query.fields().include("submittableId").include("status").include("submittableType");
+
+        mongoTemplate.find(query, ProcessingStatus.class).forEach(processingStatus -> {
+            currentStatuses.put(processingStatus.getSubmittableId(), processingStatus.getStatus());
+            submittableTypes.put(processingStatus.getSubmittableId(), processingStatus.getSubmittableType());
+        });
+    }
+
+    @Data
+    private static class StatusChange {
+        private final String fromStatus;
+        private final String toStatus;
     }
 }
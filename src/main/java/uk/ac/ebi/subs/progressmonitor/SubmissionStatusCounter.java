@@ -0,0 +1,241 @@
+package uk.ac.ebi.subs.progressmonitor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import uk.ac.ebi.subs.repository.repos.status.ProcessingStatusRepository;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Keeps a {@link SubmissionStatusCounts} document per submission up to date with atomic $inc updates, so the status
+ * summary of a submission is read from one document instead of an aggregation over all its processing statuses.
+ *
+ * The document is seeded from the aggregation the first time the summary of a submission is read or its counts
+ * change, whichever comes first. The deltas are taken from the results of the writes to the processing statuses.
+ * Each write is pending from before it touches the processing statuses until its deltas are applied. A seeding or
+ * reconciliation only replaces the counts while no write is pending and no delta was applied while it recounted,
+ * so the changes of a write in flight are not counted twice. Any remaining drift is corrected by the
+ * {@link SubmissionStatusCountsReconciler}.
+ */
+@Component
+public class SubmissionStatusCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubmissionStatusCounter.class);
+
+    private static final String COUNTS = "counts.";
+    private static final String VERSION = "version";
+    private static final String PENDING_WRITES = "pendingWrites";
+    private static final String LAST_WRITE_DATE = "lastWriteDate";
+    private static final String LAST_RECONCILED_DATE = "lastReconciledDate";
+    private static final int RECONCILE_ATTEMPTS = 3;
+
+    private MongoTemplate mongoTemplate;
+    private ProcessingStatusRepository processingStatusRepository;
+
+    public SubmissionStatusCounter(MongoTemplate mongoTemplate, ProcessingStatusRepository processingStatusRepository) {
+        this.mongoTemplate = mongoTemplate;
+        this.processingStatusRepository = processingStatusRepository;
+    }
+
+    /**
+     * @param submissionId the ID of the submission
+     * @return the number of submittables in each processing status, statuses without submittables are left out
+     */
+    public Map<String, Integer> summariseSubmissionStatus(String submissionId) {
+        SubmissionStatusCounts submissionStatusCounts = mongoTemplate.findById(submissionId, SubmissionStatusCounts.class);
+
+        if (submissionStatusCounts == null || submissionStatusCounts.getLastReconciledDate() == null) {
+            return reconcile(submissionId);
+        }
+
+        Map<String, Integer> statusSummary = new HashMap<>();
+        submissionStatusCounts.getCounts().forEach((status, count) -> {
+            if (count != null && count > 0) {
+                statusSummary.put(status, count.intValue());
+            }
+        });
+
+        return statusSummary;
+    }
+
+    public void statusChanged(String submissionId, String fromStatus, String toStatus) {
+        Map<String, Long> deltas = new HashMap<>();
+        addStatusChange(deltas, fromStatus, toStatus);
+        countStatusWrites(submissionId, () -> deltas);
+    }
+
+    /**
+     * Record the move of a submittable from one status to another in a map of deltas
+     *
+     * @param deltas     the change of count of each status
+     * @param fromStatus the status before the change
+     * @param toStatus   the status after the change
+     */
+    public static void addStatusChange(Map<String, Long> deltas, String fromStatus, String toStatus) {
+        if (fromStatus == null || toStatus == null || fromStatus.equals(toStatus)) {
+            return;
+        }
+        deltas.merge(fromStatus, -1L, Long::sum);
+        deltas.merge(toStatus, 1L, Long::sum);
+    }
+
+    /**
+     * Run writes to the processing statuses of a submission and apply the changes of the status counts they return
+     * in a single atomic update. The writes are pending until then, so the counts are not reconciled meanwhile.
+     * If the writes fail, the pending write is ended without changes and the reconciliation corrects the counts.
+     * If the submission has no counts yet, they are seeded from its processing statuses, which already include
+     * the changes.
+     *
+     * @param submissionId the ID of the submission
+     * @param statusWrites the writes, returning the change of count of each status
+     */
+    public void countStatusWrites(String submissionId, Supplier<Map<String, Long>> statusWrites) {
+        beginWrite(submissionId);
+
+        Map<String, Long> deltas = Collections.emptyMap();
+        try {
+            deltas = statusWrites.get();
+        } finally {
+            endWrite(submissionId, deltas);
+        }
+    }
+
+    private void beginWrite(String submissionId) {
+        Update update = new Update().inc(PENDING_WRITES, 1).inc(VERSION, 1).set(LAST_WRITE_DATE, new Date());
+
+        try {
+            mongoTemplate.upsert(query(where("_id").is(submissionId)), update, SubmissionStatusCounts.class);
+        } catch (DuplicateKeyException e) {
+            // another write created the document first
+            mongoTemplate.updateFirst(query(where("_id").is(submissionId)), update, SubmissionStatusCounts.class);
+        }
+    }
+
+    private void endWrite(String submissionId, Map<String, Long> deltas) {
+        Update update = new Update().inc(PENDING_WRITES, -1).inc(VERSION, 1).set(LAST_WRITE_DATE, new Date());
+
+        for (Map.Entry<String, Long> delta : deltas.entrySet()) {
+            if (delta.getValue() != 0) {
+                update.inc(COUNTS + delta.getKey(), delta.getValue());
+            }
+        }
+
+        boolean applied = mongoTemplate.updateFirst(
+                query(where("_id").is(submissionId).and(LAST_RECONCILED_DATE).ne(null).and(PENDING_WRITES).gt(0)),
+                update,
+                SubmissionStatusCounts.class
+        ).getN() > 0;
+
+        if (!applied) {
+            // the counts are not seeded yet, or the write was released as stale, so recount instead
+            mongoTemplate.updateFirst(
+                    query(where("_id").is(submissionId).and(PENDING_WRITES).gt(0)),
+                    new Update().inc(PENDING_WRITES, -1).inc(VERSION, 1).set(LAST_WRITE_DATE, new Date()),
+                    SubmissionStatusCounts.class
+            );
+            reconcile(submissionId);
+        }
+    }
+
+    /**
+     * Replace the status counts of a submission with a fresh aggregation over its processing statuses.
+     * The counts are only replaced if no write is pending and no delta was applied to them during the aggregation,
+     * otherwise the aggregation is done again. The aggregation is returned either way.
+     *
+     * @param submissionId the ID of the submission
+     * @return the status summary from the aggregation
+     */
+    public Map<String, Integer> reconcile(String submissionId) {
+        Map<String, Integer> statusSummary = null;
+
+        for (int attempt = 0; attempt < RECONCILE_ATTEMPTS; attempt++) {
+            SubmissionStatusCounts current = mongoTemplate.findById(submissionId, SubmissionStatusCounts.class);
+
+            statusSummary = processingStatusRepository.summariseSubmissionStatus(submissionId);
+
+            Map<String, Long> counts = new HashMap<>();
+            statusSummary.forEach((status, count) -> counts.put(status, count.longValue()));
+
+            if (hasPendingWrites(current)) {
+                logger.debug("Status counts of submission {} have writes pending, not reconciled", submissionId);
+                return statusSummary;
+            }
+
+            if (replaceCounts(submissionId, current, counts)) {
+                logger.debug("Reconciled status counts of submission {}: {}", submissionId, statusSummary);
+                return statusSummary;
+            }
+        }
+
+        logger.info("Status counts of submission {} kept changing, left for the next reconciliation", submissionId);
+
+        return statusSummary;
+    }
+
+    private boolean replaceCounts(String submissionId, SubmissionStatusCounts current, Map<String, Long> counts) {
+        if (current == null) {
+            SubmissionStatusCounts seed = new SubmissionStatusCounts();
+            seed.setSubmissionId(submissionId);
+            seed.setCounts(counts);
+            seed.setLastReconciledDate(new Date());
+
+            try {
+                mongoTemplate.insert(seed);
+                return true;
+            } catch (DuplicateKeyException e) {
+                return false;
+            }
+        }
+
+        return mongoTemplate.updateFirst(
+                query(where("_id").is(submissionId).and(VERSION).is(current.getVersion()).and(PENDING_WRITES).not().gt(0)),
+                Update.update("counts", counts).set(LAST_RECONCILED_DATE, new Date()).inc(VERSION, 1),
+                SubmissionStatusCounts.class
+        ).getN() > 0;
+    }
+
+    static boolean hasPendingWrites(SubmissionStatusCounts submissionStatusCounts) {
+        return submissionStatusCounts != null
+                && submissionStatusCounts.getPendingWrites() != null
+                && submissionStatusCounts.getPendingWrites() > 0;
+    }
+
+    /**
+     * Drop the pending writes of a submission if none of them started or ended since the given date, as they were
+     * left pending by a process that stopped before it could end them
+     *
+     * @param submissionId  the ID of the submission
+     * @param writtenBefore the date before which the last write must have been
+     * @return true if pending writes were dropped
+     */
+    public boolean releaseStaleWrites(String submissionId, Date writtenBefore) {
+        return mongoTemplate.updateFirst(
+                query(where("_id").is(submissionId).and(PENDING_WRITES).gt(0).and(LAST_WRITE_DATE).lt(writtenBefore)),
+                new Update().set(PENDING_WRITES, 0L).inc(VERSION, 1),
+                SubmissionStatusCounts.class
+        ).getN() > 0;
+    }
+
+    public void markCompleted(String submissionId) {
+        mongoTemplate.updateFirst(
+                query(where("_id").is(submissionId)),
+                Update.update("completed", true),
+                SubmissionStatusCounts.class
+        );
+    }
+
+    public void remove(String submissionId) {
+        mongoTemplate.remove(query(where("_id").is(submissionId)), SubmissionStatusCounts.class);
+    }
+}
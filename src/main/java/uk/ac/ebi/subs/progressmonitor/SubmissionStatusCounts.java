@@ -0,0 +1,45 @@
+package uk.ac.ebi.subs.progressmonitor;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Number of submittables of a submission in each processing status, keyed by the name of the status.
+ */
+@Data
+@Document(collection = SubmissionStatusCounts.COLLECTION)
+public class SubmissionStatusCounts {
+
+    static final String COLLECTION = "submissionStatusCounts";
+
+    @Id
+    private String submissionId;
+
+    private Map<String, Long> counts = new HashMap<>();
+
+    private boolean completed;
+
+    /**
+     * Incremented by every change of the counts, so a reconciliation can tell whether the counts changed while
+     * the processing statuses were being recounted. Null for counts that were never changed
+     */
+    private Long version;
+
+    /**
+     * Number of writes to the processing statuses of the submission whose changes are not in the counts yet.
+     * The counts are only replaced by a reconciliation while no write is pending
+     */
+    private Long pendingWrites;
+
+    private Date lastWriteDate;
+
+    /**
+     * Null until the counts are seeded from the processing statuses
+     */
+    private Date lastReconciledDate;
+}
@@ -0,0 +1,21 @@
+package uk.ac.ebi.subs.progressmonitor;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the reconciliation of the submission status counts.
+ * Writes still pending after staleWriteAfter milliseconds without any write starting or ending are taken to be left
+ * by a process that stopped, and no longer hold back the reconciliation.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Component
+@ConfigurationProperties(prefix = "usi.submission-status-counts")
+class SubmissionStatusCountsProperties {
+    private long staleWriteAfter = 1800000;
+}
@@ -0,0 +1,68 @@
+package uk.ac.ebi.subs.progressmonitor;
+
+import lombok.AllArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import uk.ac.ebi.subs.error.EntityNotFoundException;
+import uk.ac.ebi.subs.processing.dispatcher.SubmissionCompletionService;
+
+import java.util.Date;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Corrects any drift of the {@link SubmissionStatusCounts} of submissions still being processed by recounting them
+ * from their processing statuses, and checks again whether they are finished, as a submission whose last
+ * certificate was missed by drifted counts is not dispatched again.
+ * Submissions with writes pending are left for the next run, unless their writes are stale.
+ */
+@Service
+@AllArgsConstructor
+public class SubmissionStatusCountsReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubmissionStatusCountsReconciler.class);
+
+    private MongoTemplate mongoTemplate;
+    private SubmissionStatusCounter submissionStatusCounter;
+    private SubmissionCompletionService submissionCompletionService;
+    private SubmissionStatusCountsProperties submissionStatusCountsProperties;
+
+    @Scheduled(fixedDelayString = "${usi.submission-status-counts.reconcile-delay:600000}")
+    public void reconcileSubmissionsInProgress() {
+        Query query = query(where("completed").ne(true));
+        query.fields().include("_id").include("pendingWrites");
+
+        Date staleWritesBefore = new Date(System.currentTimeMillis() - submissionStatusCountsProperties.getStaleWriteAfter());
+
+        int reconciled = 0;
+        int completed = 0;
+        for (SubmissionStatusCounts submissionStatusCounts : mongoTemplate.find(query, SubmissionStatusCounts.class)) {
+            String submissionId = submissionStatusCounts.getSubmissionId();
+
+            if (SubmissionStatusCounter.hasPendingWrites(submissionStatusCounts)) {
+                if (!submissionStatusCounter.releaseStaleWrites(submissionId, staleWritesBefore)) {
+                    continue;
+                }
+                logger.warn("Released stale pending writes of the status counts of submission {}", submissionId);
+            }
+
+            try {
+                // recounts the processing statuses before checking them
+                if (submissionCompletionService.markSubmissionWithFinishedStatus(submissionId)) {
+                    completed++;
+                }
+            } catch (EntityNotFoundException e) {
+                logger.info("Submission {} is gone, removing its status counts", submissionId);
+                submissionStatusCounter.remove(submissionId);
+            }
+            reconciled++;
+        }
+
+        logger.debug("Reconciled status counts of {} submissions, {} of them found finished", reconciled, completed);
+    }
+}
@@ -11,15 +11,25 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 import uk.ac.ebi.subs.processing.ProcessingCertificate;
 import uk.ac.ebi.subs.processing.ProcessingCertificateEnvelope;
+import uk.ac.ebi.subs.repository.model.ProcessingStatus;
 import uk.ac.ebi.subs.repository.model.StoredSubmittable;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.springframework.data.mongodb.core.query.Criteria.where;
 import static org.springframework.data.mongodb.core.query.Query.query;
 
 /**
  * Make changes to many submittables at once
+ *
+ * Certificates are grouped by the type of their submittable, taken from its processing status, so each collection
+ * only receives the updates for its own documents. Certificates of an unknown type are applied to every collection.
  */
 @Component
 public class SubmittablesBulkOperations {
@@ -29,55 +39,106 @@ public class SubmittablesBulkOperations {
     public SubmittablesBulkOperations(List<Class<? extends StoredSubmittable>> submittablesClassList, MongoTemplate mongoTemplate) {
         this.submittablesClassList = submittablesClassList;
         this.mongoTemplate = mongoTemplate;
+
+        this.submittableClassesByType = new HashMap<>();
+        submittablesClassList.forEach(clazz -> submittableClassesByType.put(clazz.getSimpleName(), clazz));
     }
 
     private List<Class<? extends StoredSubmittable>> submittablesClassList;
+    private Map<String, Class<? extends StoredSubmittable>> submittableClassesByType;
     private MongoTemplate mongoTemplate;
 
     public void applyProcessingCertificates(ProcessingCertificateEnvelope envelope) {
-        for (Class submittableClass : submittablesClassList){
-            this.applyProcessingCertificates(envelope,submittableClass);
-        }
+        Assert.notNull(envelope);
+        Assert.notNull(envelope.getProcessingCertificates());
+
+        List<String> submittableIds = certificatesWithAccession(envelope.getProcessingCertificates()).stream()
+                .map(ProcessingCertificate::getSubmittableId)
+                .collect(Collectors.toList());
+
+        applyProcessingCertificates(envelope, submittableTypesById(submittableIds));
     }
 
-    public void applyProcessingCertificates(ProcessingCertificateEnvelope envelope, Class submittableClass) {
+    /**
+     * Apply the certificates, using already known submittable types
+     *
+     * @param envelope           the certificates to apply
+     * @param submittableTypesById the submittable type of each submittable ID, as in its processing status
+     */
+    public void applyProcessingCertificates(ProcessingCertificateEnvelope envelope, Map<String, String> submittableTypesById) {
         Assert.notNull(envelope);
         Assert.notNull(envelope.getSubmissionId());
         Assert.notNull(envelope.getProcessingCertificates());
 
+        Map<Class<? extends StoredSubmittable>, List<ProcessingCertificate>> certificatesByClass = new LinkedHashMap<>();
+        List<ProcessingCertificate> certificatesOfUnknownType = new ArrayList<>();
+
+        for (ProcessingCertificate certificate : certificatesWithAccession(envelope.getProcessingCertificates())) {
+            Class<? extends StoredSubmittable> submittableClass =
+                    submittableClassesByType.get(submittableTypesById.get(certificate.getSubmittableId()));
+
+            if (submittableClass == null) {
+                certificatesOfUnknownType.add(certificate);
+            } else {
+                certificatesByClass.computeIfAbsent(submittableClass, clazz -> new ArrayList<>()).add(certificate);
+            }
+        }
+
+        if (!certificatesOfUnknownType.isEmpty()) {
+            logger.debug("{} certificates of submission {} have no known submittable type, applying them to every collection",
+                    certificatesOfUnknownType.size(), envelope.getSubmissionId());
+
+            for (Class<? extends StoredSubmittable> submittableClass : submittablesClassList) {
+                certificatesByClass.computeIfAbsent(submittableClass, clazz -> new ArrayList<>()).addAll(certificatesOfUnknownType);
+            }
+        }
+
+        certificatesByClass.forEach((submittableClass, certificates) ->
+                applyProcessingCertificates(envelope.getSubmissionId(), certificates, submittableClass)
+        );
+    }
+
+    private void applyProcessingCertificates(String submissionId, List<ProcessingCertificate> certificates, Class submittableClass) {
         BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, submittableClass);
-        boolean haveAccession = false;
 
-        for (ProcessingCertificate certificate : envelope.getProcessingCertificates()) {
+        for (ProcessingCertificate certificate : certificates) {
             Query query = query(
                     where("_id").is(certificate.getSubmittableId())
-                            .and("submission.$id").is(envelope.getSubmissionId())
+                            .and("submission.$id").is(submissionId)
             );
 
-            Update update = new Update();
-            boolean haveUpdates = false;
+            ops.updateOne(query, new Update().set("accession", certificate.getAccession()));
+        }
 
-            if (certificate.getAccession() != null) {
-                update.set("accession", certificate.getAccession());
-                haveUpdates = true;
-                haveAccession = true;
-            }
+        BulkWriteResult writeResult = ops.execute();
+        logger.info("Applying certs for {} in submission {}, {} certs, changed {}",
+                submittableClass,
+                submissionId,
+                certificates.size(),
+                writeResult.getModifiedCount()
+        );
+    }
 
-            if (haveUpdates) {
-                ops.updateOne(query, update);
-            }
+    private List<ProcessingCertificate> certificatesWithAccession(Collection<ProcessingCertificate> certificates) {
+        return certificates.stream()
+                .filter(certificate -> certificate.getAccession() != null)
+                .collect(Collectors.toList());
+    }
 
-        }
+    private Map<String, String> submittableTypesById(Collection<String> submittableIds) {
+        Map<String, String> submittableTypesById = new HashMap<>();
 
-        if (haveAccession) {
-            BulkWriteResult writeResult = ops.execute();
-            logger.info("Applying certs for {} in submission {}, {} certs, changed {}",
-                    submittableClass,
-                    envelope.getSubmissionId(),
-                    envelope.getProcessingCertificates().size(),
-                    writeResult.getModifiedCount()
-            );
+        if (submittableIds.isEmpty()) {
+            return submittableTypesById;
         }
-    }
 
+        Query query = query(where("submittableId").in(submittableIds));
+        query.fields().include("submittableId").include("submittableType");
+
+        mongoTemplate.find(query, ProcessingStatus.class).forEach(processingStatus ->
+                submittableTypesById.put(processingStatus.getSubmittableId(), processingStatus.getSubmittableType())
+        );
+
+        return submittableTypesById;
+    }
 }
@@ -1,5 +1,7 @@
 package uk.ac.ebi.subs.apisupport;
 
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -7,9 +9,11 @@ import org.junit.experimental.categories.Category;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.test.context.junit4.SpringRunner;
 import uk.ac.ebi.subs.CoreProcessingApp;
+import uk.ac.ebi.subs.data.component.Team;
 import uk.ac.ebi.subs.data.status.ProcessingStatusEnum;
 import uk.ac.ebi.subs.data.status.SubmissionStatusEnum;
 import uk.ac.ebi.subs.repository.model.ProcessingStatus;
@@ -22,7 +26,10 @@ import uk.ac.ebi.subs.repository.repos.status.SubmissionStatusRepository;
 import uk.ac.ebi.subs.repository.repos.submittables.SampleRepository;
 import uk.ac.ebi.subs.util.MongoDBDependentTest;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.equalTo;
@@ -62,8 +69,66 @@ public class ApiSupportServiceMarkSubmittedTest {
         assertThat(expectDraft.getStatus(),equalTo(ProcessingStatusEnum.Draft.name()));
     }
 
+    @Test
+    public void markManyDraftsAsSubmitted(){
+        List<Sample> samples = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            Sample sample = new Sample();
+            sample.setId("sample" + i);
+            sample.setAlias("sample" + i);
+            sample.setSubmission(submission);
+            sample.setProcessingStatus(ProcessingStatus.createForSubmittable(sample));
+            samples.add(sample);
+        }
+        processingStatusRepository.save(samples.stream().map(Sample::getProcessingStatus).collect(Collectors.toList()));
+
+        // details changed while in draft, after the processing statuses were created
+        samples.forEach(sample -> {
+            sample.setAlias("renamed" + sample.getId());
+            sample.setTeam(Team.build("team1"));
+            sample.setAccession("SAMEA" + sample.getId());
+        });
+        sampleRepository.save(samples);
+
+        apiSupportService.markContentsAsSubmitted(submission);
+
+        samples.forEach(sample -> {
+            ProcessingStatus processingStatus = processingStatusRepository.findOne(sample.getProcessingStatus().getId());
+
+            assertThat(processingStatus.getStatus(), equalTo(ProcessingStatusEnum.Submitted.name()));
+            assertThat(processingStatus.getAlias(), equalTo("renamed" + sample.getId()));
+            assertThat(processingStatus.getAccession(), equalTo("SAMEA" + sample.getId()));
+            assertTeamCopied(sample, processingStatus);
+        });
+        assertThat(
+                processingStatusRepository.findOne(dispatchedSample.getProcessingStatus().getId()).getStatus(),
+                equalTo(ProcessingStatusEnum.Dispatched.name())
+        );
+    }
+
+    /**
+     * The team is stored on the processing status as the details copied from the submittable give it
+     */
+    private void assertTeamCopied(Sample sample, ProcessingStatus processingStatus) {
+        ProcessingStatus expectedDetails = new ProcessingStatus();
+        expectedDetails.copyDetailsFromSubmittable(sample);
+
+        DBObject expected = new BasicDBObject();
+        mongoTemplate.getConverter().write(expectedDetails, expected);
+        DBObject actual = new BasicDBObject();
+        mongoTemplate.getConverter().write(processingStatus, actual);
+
+        expected.keySet().stream()
+                .filter(key -> key.startsWith("team"))
+                .forEach(key -> assertThat(actual.get(key), equalTo(expected.get(key))));
+        assertThat(expected.keySet().stream().anyMatch(key -> key.startsWith("team")), equalTo(true));
+    }
+
     @Autowired private ApiSupportService apiSupportService;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
     @Autowired
     private SampleRepository sampleRepository;
 
@@ -0,0 +1,93 @@
+package uk.ac.ebi.subs.apisupport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.ac.ebi.subs.TestCoreProcessingApp;
+import uk.ac.ebi.subs.repository.model.ProcessingStatus;
+import uk.ac.ebi.subs.repository.repos.status.ProcessingStatusRepository;
+import uk.ac.ebi.subs.util.MongoDBDependentTest;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertThat;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = TestCoreProcessingApp.class)
+@Category(MongoDBDependentTest.class)
+public class SubmissionContentsDeleterChunksTest {
+
+    private static final int CHUNK_SIZE = 10;
+    private static final String SUBMISSION_ID = "submissionToDelete";
+    private static final String OTHER_SUBMISSION_ID = "submissionToKeep";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ProcessingStatusRepository processingStatusRepository;
+
+    private SubmissionContentsDeleter submissionContentsDeleter;
+
+    @Before
+    public void buildUp() {
+        processingStatusRepository.deleteAll();
+
+        submissionContentsDeleter = new SubmissionContentsDeleter(
+                mongoTemplate,
+                new SubmissionDeletionProperties(1, CHUNK_SIZE, 0)
+        );
+    }
+
+    @After
+    public void tearDown() {
+        submissionContentsDeleter.shutdown();
+        processingStatusRepository.deleteAll();
+    }
+
+    @Test
+    public void whenMoreDocumentsThanChunkSize_thenAllAreDeletedAndCounted() {
+        createProcessingStatuses(SUBMISSION_ID, 25);
+        createProcessingStatuses(OTHER_SUBMISSION_ID, 3);
+
+        long deletedCount = submissionContentsDeleter.deleteInChunks(where("submissionId").is(SUBMISSION_ID), ProcessingStatus.class);
+
+        assertThat(deletedCount, equalTo(25L));
+        assertThat(processingStatusRepository.findBySubmissionId(SUBMISSION_ID), hasSize(0));
+        assertThat(processingStatusRepository.findBySubmissionId(OTHER_SUBMISSION_ID), hasSize(3));
+    }
+
+    @Test
+    public void whenDocumentsAreAMultipleOfChunkSize_thenAllAreDeletedAndCounted() {
+        createProcessingStatuses(SUBMISSION_ID, 2 * CHUNK_SIZE);
+
+        long deletedCount = submissionContentsDeleter.deleteInChunks(where("submissionId").is(SUBMISSION_ID), ProcessingStatus.class);
+
+        assertThat(deletedCount, equalTo(2L * CHUNK_SIZE));
+        assertThat(processingStatusRepository.findBySubmissionId(SUBMISSION_ID), hasSize(0));
+    }
+
+    private void createProcessingStatuses(String submissionId, int count) {
+        List<ProcessingStatus> processingStatuses = IntStream.range(0, count)
+                .mapToObj(i -> {
+                    ProcessingStatus processingStatus = new ProcessingStatus();
+                    processingStatus.setSubmissionId(submissionId);
+                    processingStatus.setSubmittableId(submissionId + "-item" + i);
+                    return processingStatus;
+                })
+                .collect(Collectors.toList());
+
+        processingStatusRepository.save(processingStatuses);
+    }
+}
@@ -0,0 +1,76 @@
+package uk.ac.ebi.subs.apisupport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.hasKey;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SubmissionContentsDeleterTest {
+
+    private SubmissionContentsDeleter submissionContentsDeleter;
+
+    @Before
+    public void buildUp() {
+        submissionContentsDeleter = new SubmissionContentsDeleter(
+                Mockito.mock(MongoTemplate.class),
+                new SubmissionDeletionProperties(2, 1000, 0)
+        );
+    }
+
+    @After
+    public void tearDown() {
+        submissionContentsDeleter.shutdown();
+    }
+
+    @Test
+    public void whenAllDeletesSucceed_thenSummaryHasTheirCounts() {
+        Map<String, Supplier<Long>> deletes = new LinkedHashMap<>();
+        deletes.put("samples", () -> 3L);
+        deletes.put("processingStatus", () -> 5L);
+        deletes.put("validationResults", () -> null);
+
+        Map<String, Long> deletedCounts = submissionContentsDeleter.deleteAll("sub1", deletes);
+
+        assertThat(deletedCounts.size(), equalTo(2));
+        assertThat(deletedCounts, hasEntry("samples", 3L));
+        assertThat(deletedCounts, hasEntry("processingStatus", 5L));
+        assertThat(deletedCounts, not(hasKey("validationResults")));
+    }
+
+    @Test
+    public void whenOneDeleteFails_thenOthersStillRunAndFailureIsRethrown() {
+        AtomicBoolean otherDeleteRan = new AtomicBoolean(false);
+
+        Map<String, Supplier<Long>> deletes = new LinkedHashMap<>();
+        deletes.put("samples", () -> {
+            throw new IllegalStateException("test failure");
+        });
+        deletes.put("processingStatus", () -> {
+            otherDeleteRan.set(true);
+            return 1L;
+        });
+
+        try {
+            submissionContentsDeleter.deleteAll("sub1", deletes);
+            fail("the failure should have been rethrown");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), equalTo("test failure"));
+        }
+
+        assertTrue(otherDeleteRan.get());
+    }
+}
@@ -4,11 +4,16 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
+import org.mockito.Mockito;
 import org.springframework.amqp.rabbit.core.RabbitMessagingTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.messaging.MessagingException;
 import org.springframework.test.context.junit4.SpringRunner;
 import uk.ac.ebi.subs.TestCoreProcessingApp;
 import uk.ac.ebi.subs.data.component.Archive;
@@ -18,14 +23,23 @@ import uk.ac.ebi.subs.repository.model.accession.AccessionIdWrapper;
 import uk.ac.ebi.subs.repository.repos.AccessionIdRepository;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.CoreMatchers.any;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
 import static uk.ac.ebi.subs.processing.accession.AccessionQueueConfig.USI_ARCHIVE_ACCESSIONIDS_PUBLISHED_ROUTING_KEY;
 
 @RunWith(SpringRunner.class)
@@ -42,6 +56,9 @@ public class AccessionConsumerAndPublisherTest {
     @Autowired
     private AccessionIdRepository accessionIdRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
     @MockBean
     private RabbitMessagingTemplate rabbitMessagingTemplate;
 
@@ -112,6 +129,135 @@ public class AccessionConsumerAndPublisherTest {
                 .convertAndSend(Matchers.any(String.class), Matchers.any(String.class), Matchers.any(Object.class));
     }
 
+    @Test
+    public void whenSeveralEnvelopesFromBioSamplesThenAllAccessionIdsAreKept() {
+        String submissionId = SUBMISSION_IDS.get(0);
+
+        accessionConsumerAndPublisher.consumeAccessionIds(createProcessingCertificateEnvelope(Archive.BioSamples, submissionId));
+        accessionConsumerAndPublisher.consumeAccessionIds(createProcessingCertificateEnvelope(Archive.BioSamples, submissionId));
+        accessionConsumerAndPublisher.consumeAccessionIds(createProcessingCertificateEnvelope(Archive.BioStudies, submissionId));
+
+        AccessionIdWrapper accessionIdWrapper = accessionIdRepository.findBySubmissionId(submissionId);
+
+        assertEquals(2 * NUMBER_OF_SUBMITTABLE, accessionIdWrapper.getBioSamplesAccessionIds().size());
+        assertNotNull(accessionIdWrapper.getBioStudiesAccessionId());
+    }
+
+    @Test
+    public void whenSomeSubmissionsAreReadyThenOnlyTheyAreSentOnce() {
+        for (int i = 0; i < NUMBER_OF_SUBMISSION; i++) {
+            accessionConsumerAndPublisher.consumeAccessionIds(createProcessingCertificateEnvelope(Archive.BioSamples, SUBMISSION_IDS.get(i)));
+            if (i % 2 == 0) {
+                accessionConsumerAndPublisher.consumeAccessionIds(createProcessingCertificateEnvelope(Archive.BioStudies, SUBMISSION_IDS.get(i)));
+            }
+        }
+
+        accessionConsumerAndPublisher.sendAccessionIDs();
+        accessionConsumerAndPublisher.sendAccessionIDs();
+
+        verify(rabbitMessagingTemplate, times(3))
+                .convertAndSend(Matchers.any(String.class), Matchers.any(String.class), Matchers.any(Object.class));
+        assertNotNull(accessionIdRepository.findBySubmissionId(SUBMISSION_IDS.get(0)).getMessageSentDate());
+        assertNull(accessionIdRepository.findBySubmissionId(SUBMISSION_IDS.get(1)).getMessageSentDate());
+    }
+
+    @Test
+    public void whenLastAccessionIdsArriveThenMessageIsSentWithoutWaitingForScheduler() {
+        String submissionId = SUBMISSION_IDS.get(0);
+
+        accessionConsumerAndPublisher.consumeAccessionIds(createProcessingCertificateEnvelope(Archive.BioSamples, submissionId));
+        accessionConsumerAndPublisher.consumeAccessionIds(createProcessingCertificateEnvelope(Archive.BioStudies, submissionId));
+
+        verify(rabbitMessagingTemplate, times(1))
+                .convertAndSend(Matchers.any(String.class), Matchers.any(String.class), Matchers.any(Object.class));
+        assertNotNull(accessionIdRepository.findBySubmissionId(submissionId).getMessageSentDate());
+    }
+
+    @Test
+    public void whenBioSamplesAccessionIdsArriveAfterSendingThenTheyAreSentToo() {
+        String submissionId = SUBMISSION_IDS.get(0);
+
+        accessionConsumerAndPublisher.consumeAccessionIds(createProcessingCertificateEnvelope(Archive.BioSamples, submissionId));
+        accessionConsumerAndPublisher.consumeAccessionIds(createProcessingCertificateEnvelope(Archive.BioStudies, submissionId));
+        accessionConsumerAndPublisher.consumeAccessionIds(createProcessingCertificateEnvelope(Archive.BioSamples, submissionId));
+
+        accessionConsumerAndPublisher.sendAccessionIDs();
+
+        ArgumentCaptor<Object> envelopeCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(rabbitMessagingTemplate, times(2))
+                .convertAndSend(Matchers.any(String.class), Matchers.any(String.class), envelopeCaptor.capture());
+        AccessionIdEnvelope lastEnvelope = (AccessionIdEnvelope) envelopeCaptor.getAllValues().get(1);
+        assertEquals(2 * NUMBER_OF_SUBMITTABLE, lastEnvelope.getBioSamplesAccessionIds().size());
+    }
+
+    @Test
+    public void whenSendingFailsThenSchedulerSendsTheMessage() {
+        String submissionId = SUBMISSION_IDS.get(0);
+
+        doThrow(new MessagingException("test failure")).doNothing().when(rabbitMessagingTemplate)
+                .convertAndSend(Matchers.any(String.class), Matchers.any(String.class), Matchers.any(Object.class));
+
+        accessionConsumerAndPublisher.consumeAccessionIds(createProcessingCertificateEnvelope(Archive.BioSamples, submissionId));
+        try {
+            accessionConsumerAndPublisher.consumeAccessionIds(createProcessingCertificateEnvelope(Archive.BioStudies, submissionId));
+            fail("sending should have failed");
+        } catch (MessagingException e) {
+            assertNull(accessionIdRepository.findBySubmissionId(submissionId).getMessageSentDate());
+        }
+
+        accessionConsumerAndPublisher.sendAccessionIDs();
+
+        verify(rabbitMessagingTemplate, times(2))
+                .convertAndSend(Matchers.any(String.class), Matchers.any(String.class), Matchers.any(Object.class));
+        assertNotNull(accessionIdRepository.findBySubmissionId(submissionId).getMessageSentDate());
+    }
+
+    @Test
+    public void whenClaimIsStillLeasedThenSchedulerDoesNotSendTheMessage() {
+        String submissionId = SUBMISSION_IDS.get(0);
+        givenReadyToSendAndClaimedAt(submissionId, new Date());
+
+        accessionConsumerAndPublisher.sendAccessionIDs();
+
+        verify(rabbitMessagingTemplate, never())
+                .convertAndSend(Matchers.any(String.class), Matchers.any(String.class), Matchers.any(Object.class));
+        assertNull(accessionIdRepository.findBySubmissionId(submissionId).getMessageSentDate());
+    }
+
+    @Test
+    public void whenClaimIsStaleThenSchedulerSendsTheMessage() {
+        String submissionId = SUBMISSION_IDS.get(0);
+        givenReadyToSendAndClaimedAt(submissionId, new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)));
+
+        accessionConsumerAndPublisher.sendAccessionIDs();
+
+        verify(rabbitMessagingTemplate, times(1))
+                .convertAndSend(Matchers.any(String.class), Matchers.any(String.class), Matchers.any(Object.class));
+        assertNotNull(accessionIdRepository.findBySubmissionId(submissionId).getMessageSentDate());
+    }
+
+    /**
+     * Leave the accession IDs of a submission ready to be sent, as claimed by a node that stopped while sending them
+     */
+    private void givenReadyToSendAndClaimedAt(String submissionId, Date claimedAt) {
+        doThrow(new MessagingException("test failure")).when(rabbitMessagingTemplate)
+                .convertAndSend(Matchers.any(String.class), Matchers.any(String.class), Matchers.any(Object.class));
+
+        accessionConsumerAndPublisher.consumeAccessionIds(createProcessingCertificateEnvelope(Archive.BioSamples, submissionId));
+        try {
+            accessionConsumerAndPublisher.consumeAccessionIds(createProcessingCertificateEnvelope(Archive.BioStudies, submissionId));
+            fail("sending should have failed");
+        } catch (MessagingException e) {
+            mongoTemplate.updateFirst(
+                    query(where("submissionId").is(submissionId)),
+                    Update.update("claimedAt", claimedAt),
+                    AccessionIdWrapper.class
+            );
+        }
+
+        Mockito.reset(rabbitMessagingTemplate);
+    }
+
     private ProcessingCertificateEnvelope createProcessingCertificateEnvelope(
             Archive archive, String submissionId) {
         ProcessingCertificateEnvelope processingCertificateEnvelope = new ProcessingCertificateEnvelope();
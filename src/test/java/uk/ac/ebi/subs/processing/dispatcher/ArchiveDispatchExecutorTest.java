@@ -0,0 +1,108 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.subs.data.component.Archive;
+import uk.ac.ebi.subs.processing.SubmissionEnvelope;
+import uk.ac.ebi.subs.repository.model.Submission;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ArchiveDispatchExecutorTest {
+
+    private static final long ARCHIVE_DISPATCH_TIME = 300;
+
+    private ArchiveDispatchExecutor archiveDispatchExecutor;
+
+    private Map<Archive, SubmissionEnvelope> readyToDispatch;
+    private Set<Archive> dispatchedArchives;
+
+    @Before
+    public void buildUp() {
+        archiveDispatchExecutor = new ArchiveDispatchExecutor(new ArchiveDispatchProperties(3));
+
+        Submission submission = new Submission();
+        submission.setId("sub1");
+
+        readyToDispatch = new LinkedHashMap<>();
+        readyToDispatch.put(Archive.BioSamples, new SubmissionEnvelope(submission));
+        readyToDispatch.put(Archive.BioStudies, new SubmissionEnvelope(submission));
+        readyToDispatch.put(Archive.Ena, new SubmissionEnvelope(submission));
+
+        dispatchedArchives = ConcurrentHashMap.newKeySet();
+    }
+
+    @After
+    public void tearDown() {
+        archiveDispatchExecutor.shutdown();
+    }
+
+    @Test
+    public void whenSeveralArchivesAreReady_thenTheyAreDispatchedConcurrently() {
+        long start = System.currentTimeMillis();
+
+        archiveDispatchExecutor.dispatchEach("sub1", readyToDispatch, (archive, submissionEnvelope) -> {
+            sleep(ARCHIVE_DISPATCH_TIME);
+            dispatchedArchives.add(archive);
+        });
+
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertThat(dispatchedArchives, containsInAnyOrder(Archive.BioSamples, Archive.BioStudies, Archive.Ena));
+        assertThat(elapsed, lessThan(ARCHIVE_DISPATCH_TIME * readyToDispatch.size()));
+    }
+
+    @Test
+    public void whenOneArchiveFails_thenOtherArchivesAreStillDispatched() {
+        try {
+            archiveDispatchExecutor.dispatchEach("sub1", readyToDispatch, (archive, submissionEnvelope) -> {
+                if (archive == Archive.Ena) {
+                    throw new IllegalStateException("Ena publish failed");
+                }
+                dispatchedArchives.add(archive);
+            });
+            fail("the Ena failure should be rethrown");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), equalTo("Ena publish failed"));
+        }
+
+        assertThat(dispatchedArchives, containsInAnyOrder(Archive.BioSamples, Archive.BioStudies));
+    }
+
+    @Test
+    public void whenSequential_thenFailureIsAlsoIsolated() {
+        ArchiveDispatchExecutor sequentialExecutor = new ArchiveDispatchExecutor(new ArchiveDispatchProperties(0));
+
+        try {
+            sequentialExecutor.dispatchEach("sub1", readyToDispatch, (archive, submissionEnvelope) -> {
+                if (archive == Archive.BioSamples) {
+                    throw new IllegalStateException("BioSamples failed");
+                }
+                dispatchedArchives.add(archive);
+            });
+            fail("the BioSamples failure should be rethrown");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), equalTo("BioSamples failed"));
+        }
+
+        assertThat(dispatchedArchives, containsInAnyOrder(Archive.BioStudies, Archive.Ena));
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
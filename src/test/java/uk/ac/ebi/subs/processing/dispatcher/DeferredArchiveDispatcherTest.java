@@ -0,0 +1,153 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.springframework.amqp.rabbit.core.RabbitMessagingTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.support.MessageBuilder;
+import uk.ac.ebi.subs.data.component.Archive;
+import uk.ac.ebi.subs.messaging.Exchanges;
+import uk.ac.ebi.subs.messaging.Topics;
+import uk.ac.ebi.subs.processing.SubmissionEnvelope;
+import uk.ac.ebi.subs.repository.model.Submission;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class DeferredArchiveDispatcherTest {
+
+    private static final String TARGET_TOPIC = "usi.submissionenvelope.dispatched.ena";
+
+    private DeferredArchiveDispatcher deferredArchiveDispatcher;
+
+    private RabbitMessagingTemplate mockRabbitMessagingTemplate;
+    private DispatcherService mockDispatcherService;
+    private MessageConverter mockMessageConverter;
+    private MetricRegistry metricRegistry;
+
+    private SubmissionEnvelope submissionEnvelope;
+
+    @Before
+    public void buildUp() {
+        mockRabbitMessagingTemplate = Mockito.mock(RabbitMessagingTemplate.class);
+        mockDispatcherService = Mockito.mock(DispatcherService.class);
+        mockMessageConverter = Mockito.mock(MessageConverter.class);
+        metricRegistry = new MetricRegistry();
+
+        DeferredDispatchProperties properties = new DeferredDispatchProperties(60000, new HashMap<>(), 1, 2, 10, 10, 1800000);
+        properties.getSettleDelay().put(Archive.Ena.name(), 0L);
+
+        deferredArchiveDispatcher = new DeferredArchiveDispatcher(
+                mockRabbitMessagingTemplate,
+                mockMessageConverter,
+                mockDispatcherService,
+                properties,
+                new DispatchMetrics(metricRegistry)
+        );
+
+        Submission submission = new Submission();
+        submission.setId("foo");
+        submissionEnvelope = new SubmissionEnvelope(submission);
+
+        Message<SubmissionEnvelope> message = MessageBuilder.withPayload(submissionEnvelope).build();
+        Mockito.when(mockMessageConverter.toMessage(Matchers.eq(submissionEnvelope), Matchers.any()))
+                .thenReturn(message);
+    }
+
+    @After
+    public void tearDown() {
+        deferredArchiveDispatcher.shutdown();
+    }
+
+    @Test
+    public void whenSettleDelayElapsed_thenEnvelopeIsEnrichedAndPublished() {
+        deferredArchiveDispatcher.schedule(Archive.Ena, TARGET_TOPIC, submissionEnvelope);
+
+        verify(mockRabbitMessagingTemplate, timeout(5000))
+                .send(Matchers.eq(Exchanges.SUBMISSIONS), Matchers.eq(TARGET_TOPIC), Matchers.any(Message.class));
+
+        InOrder inOrder = Mockito.inOrder(mockDispatcherService, mockMessageConverter, mockRabbitMessagingTemplate);
+        inOrder.verify(mockDispatcherService).insertReferencedSamples(submissionEnvelope);
+        inOrder.verify(mockDispatcherService).insertUploadedFiles(submissionEnvelope);
+        inOrder.verify(mockMessageConverter).toMessage(Matchers.eq(submissionEnvelope), Matchers.any());
+        inOrder.verify(mockRabbitMessagingTemplate)
+                .send(Matchers.eq(Exchanges.SUBMISSIONS), Matchers.eq(TARGET_TOPIC), Matchers.any(Message.class));
+
+        assertThat(metricRegistry.timer("dispatcher.publish.Ena").getCount(), equalTo(1L));
+        assertThat(metricRegistry.timer("dispatcher.serialization.Ena").getCount(), equalTo(1L));
+    }
+
+    @Test
+    public void whenPublishFailsOnce_thenItIsRetriedWithoutEnrichingAgain() {
+        Mockito.doThrow(new MessagingException("broker unavailable")).doNothing().when(mockRabbitMessagingTemplate)
+                .send(Matchers.eq(Exchanges.SUBMISSIONS), Matchers.eq(TARGET_TOPIC), Matchers.any(Message.class));
+
+        deferredArchiveDispatcher.schedule(Archive.Ena, TARGET_TOPIC, submissionEnvelope);
+
+        verify(mockDispatcherService, timeout(5000)).markSubmittablesAsPublished(Archive.Ena, submissionEnvelope);
+
+        verify(mockRabbitMessagingTemplate, times(2))
+                .send(Matchers.eq(Exchanges.SUBMISSIONS), Matchers.eq(TARGET_TOPIC), Matchers.any(Message.class));
+        verify(mockDispatcherService, times(1)).insertUploadedFiles(submissionEnvelope);
+        verify(mockMessageConverter, times(1)).toMessage(Matchers.eq(submissionEnvelope), Matchers.any());
+        verify(mockDispatcherService, never()).markSubmittablesAsErrored(Matchers.any(Archive.class), Matchers.any(SubmissionEnvelope.class));
+    }
+
+    @Test
+    public void whenPublishAttemptsAreUsedUp_thenSubmittablesAreErroredAndDispatchIsRequestedAgain() {
+        Mockito.doThrow(new MessagingException("broker unavailable")).when(mockRabbitMessagingTemplate)
+                .send(Matchers.eq(Exchanges.SUBMISSIONS), Matchers.eq(TARGET_TOPIC), Matchers.any(Message.class));
+
+        deferredArchiveDispatcher.schedule(Archive.Ena, TARGET_TOPIC, submissionEnvelope);
+
+        verify(mockDispatcherService, timeout(5000)).markSubmittablesAsErrored(Archive.Ena, submissionEnvelope);
+        verify(mockRabbitMessagingTemplate, timeout(5000)).convertAndSend(
+                Matchers.eq(Exchanges.SUBMISSIONS),
+                Matchers.eq(Topics.EVENT_SUBMISSION_PROCESSING_UPDATED),
+                Matchers.any(SubmissionEnvelope.class));
+
+        verify(mockRabbitMessagingTemplate, times(2))
+                .send(Matchers.eq(Exchanges.SUBMISSIONS), Matchers.eq(TARGET_TOPIC), Matchers.any(Message.class));
+        verify(mockDispatcherService, never()).markSubmittablesAsPublished(Matchers.any(Archive.class), Matchers.any(SubmissionEnvelope.class));
+    }
+
+    @Test
+    public void whenPublishesAreOverdue_thenTheirSubmissionsAreDispatchedAgain() {
+        Mockito.when(mockDispatcherService.revertOverdueDispatches(Matchers.any(Date.class)))
+                .thenReturn(Collections.singletonList("foo"));
+
+        deferredArchiveDispatcher.redispatchOverduePublishes();
+
+        ArgumentCaptor<SubmissionEnvelope> triggerCaptor = ArgumentCaptor.forClass(SubmissionEnvelope.class);
+        verify(mockRabbitMessagingTemplate).convertAndSend(
+                Matchers.eq(Exchanges.SUBMISSIONS),
+                Matchers.eq(Topics.EVENT_SUBMISSION_PROCESSING_UPDATED),
+                triggerCaptor.capture());
+        assertThat(triggerCaptor.getValue().getSubmission().getId(), equalTo("foo"));
+    }
+
+    @Test
+    public void whenArchiveHasNoSettleDelayConfigured_thenDefaultDelayApplies() throws InterruptedException {
+        deferredArchiveDispatcher.schedule(Archive.BioSamples, TARGET_TOPIC, submissionEnvelope);
+
+        Thread.sleep(500);
+
+        Mockito.verifyZeroInteractions(mockDispatcherService);
+    }
+}
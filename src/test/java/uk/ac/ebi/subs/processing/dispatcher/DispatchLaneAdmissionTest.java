@@ -0,0 +1,64 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import uk.ac.ebi.subs.data.status.ProcessingStatusEnum;
+import uk.ac.ebi.subs.progressmonitor.SubmissionStatusCounter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class DispatchLaneAdmissionTest {
+
+    private static final int BULK_THRESHOLD = 1000;
+
+    private DispatchLaneAdmission dispatchLaneAdmission;
+
+    private SubmissionStatusCounter mockSubmissionStatusCounter;
+
+    @Before
+    public void buildUp() {
+        mockSubmissionStatusCounter = Mockito.mock(SubmissionStatusCounter.class);
+
+        dispatchLaneAdmission = new DispatchLaneAdmission(
+                mockSubmissionStatusCounter,
+                new DispatchLaneProperties(true, BULK_THRESHOLD, 4, 1, 4, 1)
+        );
+    }
+
+    @Test
+    public void whenFewItemsToDispatch_thenInteractiveLane() {
+        givenStatusSummary("small", 3, 2, 10000);
+
+        assertThat(dispatchLaneAdmission.laneRoutingKeyFor("small"),
+                equalTo(DispatcherQueueConfig.INTERACTIVE_DISPATCH_ROUTING_KEY));
+    }
+
+    @Test
+    public void whenManyItemsToDispatch_thenBulkLane() {
+        givenStatusSummary("large", 600, 400, 0);
+
+        assertThat(dispatchLaneAdmission.laneRoutingKeyFor("large"),
+                equalTo(DispatcherQueueConfig.BULK_DISPATCH_ROUTING_KEY));
+    }
+
+    @Test
+    public void whenNothingLeftToDispatch_thenCostIsZero() {
+        Mockito.when(mockSubmissionStatusCounter.summariseSubmissionStatus("done")).thenReturn(new HashMap<>());
+
+        assertThat(dispatchLaneAdmission.estimateCost("done"), equalTo(0L));
+    }
+
+    private void givenStatusSummary(String submissionId, int draft, int submitted, int completed) {
+        Map<String, Integer> statusSummary = new HashMap<>();
+        statusSummary.put(ProcessingStatusEnum.Draft.name(), draft);
+        statusSummary.put(ProcessingStatusEnum.Submitted.name(), submitted);
+        statusSummary.put(ProcessingStatusEnum.Completed.name(), completed);
+
+        Mockito.when(mockSubmissionStatusCounter.summariseSubmissionStatus(submissionId)).thenReturn(statusSummary);
+    }
+}
@@ -0,0 +1,20 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class DispatchLaneListenerTest {
+
+    @Test(expected = IllegalStateException.class)
+    public void whenLanesAreEnabledWithoutCoalescing_thenListenerIsNotCreated() {
+        DispatchTriggerCoalescer mockDispatchTriggerCoalescer = Mockito.mock(DispatchTriggerCoalescer.class);
+        Mockito.when(mockDispatchTriggerCoalescer.isEnabled()).thenReturn(false);
+
+        new DispatchLaneListener(
+                Mockito.mock(DispatcherRabbitBridge.class),
+                mockDispatchTriggerCoalescer,
+                Mockito.mock(PartitionedDispatchExecutor.class),
+                Mockito.mock(PartitionedDispatchExecutor.class)
+        );
+    }
+}
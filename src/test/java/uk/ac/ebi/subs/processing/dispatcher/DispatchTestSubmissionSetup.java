@@ -188,6 +188,12 @@ public class DispatchTestSubmissionSetup {
         return fileRefs;
     }
 
+    void createUploadedFiles(int nbOfFiles, String filenamePrefix, String submissionId) {
+        for (int i = 0; i < nbOfFiles; i++) {
+            createUploadedFile(filenamePrefix + i, submissionId, "ABCD1234EFGH5678");
+        }
+    }
+
     private void createUploadedFile(String filename, String submissionId, String checksum) {
         uk.ac.ebi.subs.repository.model.fileupload.File uploadedFile = new uk.ac.ebi.subs.repository.model.fileupload.File();
         uploadedFile.setFilename(filename);
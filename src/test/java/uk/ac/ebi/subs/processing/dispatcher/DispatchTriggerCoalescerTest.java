@@ -0,0 +1,179 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.amqp.rabbit.core.RabbitMessagingTemplate;
+import org.springframework.messaging.converter.MessageConverter;
+import uk.ac.ebi.subs.messaging.Exchanges;
+import uk.ac.ebi.subs.messaging.Topics;
+import uk.ac.ebi.subs.processing.SubmissionEnvelope;
+import uk.ac.ebi.subs.repository.model.Submission;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class DispatchTriggerCoalescerTest {
+
+    private static final long WINDOW = 200;
+
+    private DispatchTriggerCoalescer dispatchTriggerCoalescer;
+
+    private List<SubmissionEnvelope> evaluatedEnvelopes;
+
+    private RabbitMessagingTemplate mockRabbitMessagingTemplate;
+
+    @Before
+    public void buildUp() {
+        mockRabbitMessagingTemplate = Mockito.mock(RabbitMessagingTemplate.class);
+        dispatchTriggerCoalescer = new DispatchTriggerCoalescer(
+                mockRabbitMessagingTemplate,
+                Mockito.mock(MessageConverter.class),
+                new DispatchCoalescingProperties(WINDOW, 1, 2)
+        );
+        evaluatedEnvelopes = new CopyOnWriteArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+        dispatchTriggerCoalescer.shutdown();
+    }
+
+    @Test
+    public void whenBurstOfTriggersForSameSubmission_thenEvaluatedOnceWithNewestToken() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+
+        for (int i = 0; i < 100; i++) {
+            dispatchTriggerCoalescer.submit(envelope("sub1", "token" + i), envelope -> {
+                evaluatedEnvelopes.add(envelope);
+                latch.countDown();
+                return CompletableFuture.completedFuture(null);
+            });
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Thread.sleep(WINDOW);
+
+        assertThat(evaluatedEnvelopes, hasSize(1));
+        assertThat(evaluatedEnvelopes.get(0).getJWTToken(), equalTo("token99"));
+        assertThat(dispatchTriggerCoalescer.pendingTriggerCount(), equalTo(0));
+    }
+
+    @Test
+    public void whenTriggersForDifferentSubmissions_thenEachIsEvaluated() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(2);
+
+        dispatchTriggerCoalescer.submit(envelope("sub1", "token"), envelope -> {
+            evaluatedEnvelopes.add(envelope);
+            latch.countDown();
+            return CompletableFuture.completedFuture(null);
+        });
+        dispatchTriggerCoalescer.submit(envelope("sub2", "token"), envelope -> {
+            evaluatedEnvelopes.add(envelope);
+            latch.countDown();
+            return CompletableFuture.completedFuture(null);
+        });
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        assertThat(evaluatedEnvelopes, hasSize(2));
+    }
+
+    @Test
+    public void whenDispatchesAreStillRunning_thenSchedulerDoesNotWaitForThem() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(3);
+        CompletableFuture<Void> runningDispatch = new CompletableFuture<>();
+
+        for (String submissionId : new String[]{"sub1", "sub2", "sub3"}) {
+            dispatchTriggerCoalescer.submit(envelope(submissionId, "token"), envelope -> {
+                evaluatedEnvelopes.add(envelope);
+                latch.countDown();
+                return runningDispatch;
+            });
+        }
+
+        // one scheduler thread hands over all three evaluations while none of them has finished
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        runningDispatch.complete(null);
+
+        assertThat(evaluatedEnvelopes, hasSize(3));
+    }
+
+    @Test
+    public void whenWindowCloses_thenDispatchRunsOffTheSchedulerThread() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        List<String> dispatchThreads = new CopyOnWriteArrayList<>();
+
+        // an inline dispatch, as without dispatch partitions
+        dispatchTriggerCoalescer.submit(envelope("sub1", "token"), envelope -> {
+            dispatchThreads.add(Thread.currentThread().getName());
+            latch.countDown();
+            return CompletableFuture.completedFuture(null);
+        });
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertThat(dispatchThreads.get(0), startsWith("dispatch-coalesced-"));
+    }
+
+    @Test
+    public void whenTriggerArrivesDuringEvaluation_thenItIsEvaluatedOnceTheRunningOneFinishes() throws InterruptedException {
+        CountDownLatch firstEvaluationStarted = new CountDownLatch(1);
+        CountDownLatch secondEvaluationStarted = new CountDownLatch(1);
+        CompletableFuture<Void> firstEvaluation = new CompletableFuture<>();
+
+        dispatchTriggerCoalescer.submit(envelope("sub1", "token1"), envelope -> {
+            evaluatedEnvelopes.add(envelope);
+            firstEvaluationStarted.countDown();
+            return firstEvaluation;
+        });
+        assertTrue(firstEvaluationStarted.await(5, TimeUnit.SECONDS));
+
+        dispatchTriggerCoalescer.submit(envelope("sub1", "token2"), envelope -> {
+            evaluatedEnvelopes.add(envelope);
+            secondEvaluationStarted.countDown();
+            return CompletableFuture.completedFuture(null);
+        });
+
+        Thread.sleep(WINDOW * 2);
+        assertThat(evaluatedEnvelopes, hasSize(1));
+
+        firstEvaluation.complete(null);
+
+        assertTrue(secondEvaluationStarted.await(5, TimeUnit.SECONDS));
+        assertThat(evaluatedEnvelopes, hasSize(2));
+        assertThat(evaluatedEnvelopes.get(1).getJWTToken(), equalTo("token2"));
+    }
+
+    @Test
+    public void whenEvaluationFails_thenTriggerIsPublishedAgain() {
+        SubmissionEnvelope trigger = envelope("sub1", "token");
+
+        dispatchTriggerCoalescer.submit(trigger, envelope -> {
+            CompletableFuture<Void> failedEvaluation = new CompletableFuture<>();
+            failedEvaluation.completeExceptionally(new IllegalStateException("dispatch failed"));
+            return failedEvaluation;
+        });
+
+        Mockito.verify(mockRabbitMessagingTemplate, Mockito.timeout(5000)).convertAndSend(
+                Exchanges.SUBMISSIONS, Topics.EVENT_SUBMISSION_PROCESSING_UPDATED, trigger);
+    }
+
+    private SubmissionEnvelope envelope(String submissionId, String jwtToken) {
+        Submission submission = new Submission();
+        submission.setId(submissionId);
+
+        SubmissionEnvelope submissionEnvelope = new SubmissionEnvelope(submission);
+        submissionEnvelope.setJWTToken(jwtToken);
+        return submissionEnvelope;
+    }
+}
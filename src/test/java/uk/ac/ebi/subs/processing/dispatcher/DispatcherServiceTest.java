@@ -12,6 +12,8 @@ import uk.ac.ebi.subs.processing.SubmissionEnvelope;
 import uk.ac.ebi.subs.processing.fileupload.UploadedFile;
 import uk.ac.ebi.subs.repository.model.Analysis;
 import uk.ac.ebi.subs.repository.model.DataType;
+import uk.ac.ebi.subs.repository.model.Sample;
+import uk.ac.ebi.subs.repository.model.Study;
 import uk.ac.ebi.subs.repository.model.Submission;
 import uk.ac.ebi.subs.repository.repos.DataTypeRepository;
 
@@ -77,4 +79,49 @@ public class DispatcherServiceTest {
             });
         });
     }
+
+    @Test
+    public void whenSubmissionHasManyUploadedFiles_thenOnlyReferencedFilesAddedToEnvelope() {
+        submission = dispatchTestSubmissionSetup.createSubmission();
+
+        DataType sequencingExperimentDataType = buildDataType(Archive.BioSamples, dataTypeRepository, "sequencingExperiments");
+
+        AssayData assayDataWith5Files = dispatchTestSubmissionSetup.createAssayDataWithNbOfFiles(
+                ASSAYDATA_ALIAS+"large", submission, 5, sequencingExperimentDataType);
+        dispatchTestSubmissionSetup.createUploadedFiles(10000, "unreferenced-file", submission.getId());
+
+        SubmissionEnvelope submissionEnvelope = new SubmissionEnvelope();
+        submissionEnvelope.setSubmission(submission);
+        submissionEnvelope.getAssayData().add(assayDataWith5Files);
+
+        dispatcherService.insertUploadedFiles(submissionEnvelope);
+
+        assertThat(submissionEnvelope.getUploadedFiles().size(), is(equalTo(5)));
+    }
+
+    @Test
+    public void whenAssaysReferenceSamples_thenOnlySamplesMissingFromEnvelopeAreAddedOnce() {
+        submission = dispatchTestSubmissionSetup.createSubmission();
+
+        DataType sampleDataType = buildDataType(Archive.BioSamples, dataTypeRepository, "samples");
+        DataType sequencingExperimentDataType = buildDataType(Archive.Ena, dataTypeRepository, "sequencingExperiments");
+
+        Sample sampleInEnvelope = dispatchTestSubmissionSetup.createSample("sample-in-envelope", submission, sampleDataType);
+        Sample sampleInDb = dispatchTestSubmissionSetup.createSample("sample-in-db", submission, sampleDataType);
+        Study study = dispatchTestSubmissionSetup.createStudy("study", submission, sequencingExperimentDataType);
+
+        SubmissionEnvelope submissionEnvelope = new SubmissionEnvelope();
+        submissionEnvelope.setSubmission(submission);
+        submissionEnvelope.getSamples().add(sampleInEnvelope);
+        submissionEnvelope.getAssays().addAll(Arrays.asList(
+                dispatchTestSubmissionSetup.createAssay("assay1", submission, sampleInEnvelope, study, sequencingExperimentDataType),
+                dispatchTestSubmissionSetup.createAssay("assay2", submission, sampleInDb, study, sequencingExperimentDataType),
+                dispatchTestSubmissionSetup.createAssay("assay3", submission, sampleInDb, study, sequencingExperimentDataType)
+        ));
+
+        dispatcherService.insertReferencedSamples(submissionEnvelope);
+
+        assertThat(submissionEnvelope.getSupportingSamples().size(), is(equalTo(1)));
+        assertThat(submissionEnvelope.getSupportingSamples().get(0).getAlias(), is(equalTo(sampleInDb.getAlias())));
+    }
 }
@@ -0,0 +1,141 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+public class PartitionedDispatchExecutorTest {
+
+    private static final int PARTITIONS = 4;
+    private static final int CONSUMERS = 8;
+
+    private PartitionedDispatchExecutor partitionedDispatchExecutor;
+    private MetricRegistry metricRegistry;
+
+    private ExecutorService consumers;
+
+    @Before
+    public void buildUp() {
+        metricRegistry = new MetricRegistry();
+        partitionedDispatchExecutor = new PartitionedDispatchExecutor(
+                "main",
+                PARTITIONS,
+                new DispatchMetrics(metricRegistry)
+        );
+        consumers = Executors.newFixedThreadPool(CONSUMERS);
+    }
+
+    @After
+    public void tearDown() {
+        consumers.shutdownNow();
+        partitionedDispatchExecutor.shutdown();
+    }
+
+    @Test
+    public void whenManyConsumersDispatchSameSubmission_thenDispatchIsSerial() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            futures.add(consumers.submit(() -> partitionedDispatchExecutor.execute("sub1", () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(10);
+                running.decrementAndGet();
+            })));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        assertThat(maxRunning.get(), equalTo(1));
+    }
+
+    @Test
+    public void whenSubmissionsAreOnDifferentPartitions_thenTheyAreDispatchedInParallel() throws Exception {
+        String submission1 = "sub1";
+        String submission2 = findSubmissionIdOnOtherPartition(submission1);
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Runnable dispatch = () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(200);
+            running.decrementAndGet();
+        };
+
+        Future<?> future1 = consumers.submit(() -> partitionedDispatchExecutor.execute(submission1, dispatch));
+        Future<?> future2 = consumers.submit(() -> partitionedDispatchExecutor.execute(submission2, dispatch));
+        future1.get();
+        future2.get();
+
+        assertThat(maxRunning.get(), equalTo(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void whenDispatchFails_thenFailureReachesTheListener() {
+        partitionedDispatchExecutor.execute("sub1", () -> {
+            throw new IllegalArgumentException("dispatch failed");
+        });
+    }
+
+    @Test
+    public void whenDispatchIsHandedOver_thenCallerDoesNotWait() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> dispatch = partitionedDispatchExecutor.submit("sub1", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertThat(dispatch.isDone(), equalTo(false));
+
+        release.countDown();
+        dispatch.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void partitionMetricsAreRegistered() {
+        assertThat(metricRegistry.getGauges().get("dispatcher.partitions.main.count").getValue(), equalTo(PARTITIONS));
+        assertThat(metricRegistry.getGauges().get("dispatcher.partitions.main.0.queue-depth").getValue(), equalTo(0));
+        assertThat(metricRegistry.getGauges().size(), greaterThan(PARTITIONS));
+    }
+
+    private String findSubmissionIdOnOtherPartition(String submissionId) {
+        int partition = partitionedDispatchExecutor.partitionOf(submissionId);
+        int i = 0;
+        while (partitionedDispatchExecutor.partitionOf("sub" + i) == partition) {
+            i++;
+        }
+        String otherSubmissionId = "sub" + i;
+        assertThat(partitionedDispatchExecutor.partitionOf(otherSubmissionId), not(equalTo(partition)));
+        return otherSubmissionId;
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
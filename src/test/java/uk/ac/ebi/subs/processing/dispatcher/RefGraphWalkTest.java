@@ -0,0 +1,123 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import uk.ac.ebi.subs.data.component.AbstractSubsRef;
+import uk.ac.ebi.subs.data.component.ProjectRef;
+import uk.ac.ebi.subs.data.component.StudyRef;
+import uk.ac.ebi.subs.repository.model.Assay;
+import uk.ac.ebi.subs.repository.model.Project;
+import uk.ac.ebi.subs.repository.model.StoredSubmittable;
+import uk.ac.ebi.subs.repository.model.Study;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class RefGraphWalkTest {
+
+    private static final int ASSAY_COUNT = 100;
+    private static final String TEAM = "test-team";
+
+    private RefResolver mockRefResolver;
+
+    private Project project;
+    private Study study;
+    private List<Assay> assays;
+
+    @Before
+    public void buildUp() {
+        project = new Project();
+        project.setId("project1");
+        project.setAlias("project");
+
+        study = new Study();
+        study.setId("study1");
+        study.setAlias("study");
+        study.setAccession("ERP000001");
+        ProjectRef projectRef = new ProjectRef();
+        projectRef.setAlias(project.getAlias());
+        projectRef.setTeam(TEAM);
+        study.setProjectRef(projectRef);
+
+        // every assay points to the same study, which points to the project
+        assays = IntStream.range(0, ASSAY_COUNT)
+                .mapToObj(i -> {
+                    Assay assay = new Assay();
+                    assay.setId("assay" + i);
+                    StudyRef studyRef = new StudyRef();
+                    studyRef.setAlias(study.getAlias());
+                    studyRef.setTeam(TEAM);
+                    assay.setStudyRef(studyRef);
+                    return assay;
+                })
+                .collect(Collectors.toList());
+
+        mockRefResolver = Mockito.mock(RefResolver.class);
+        Mockito.when(mockRefResolver.resolve(Matchers.any(Collection.class))).thenAnswer(invocation -> {
+            Collection<AbstractSubsRef> refs = (Collection<AbstractSubsRef>) invocation.getArguments()[0];
+            Map<String, StoredSubmittable> resolved = new HashMap<>();
+            refs.forEach(ref -> resolved.put(RefResolver.refKey(ref), ref instanceof StudyRef ? study : project));
+            return resolved;
+        });
+    }
+
+    @Test
+    public void whenSubgraphIsShared_thenItIsWalkedOnce() {
+        RefGraphWalk refGraphWalk = new RefGraphWalk(mockRefResolver, 32);
+
+        refGraphWalk.walkFrom(assays);
+
+        // one bulk lookup for the assays' refs, one for the study's ref
+        verify(mockRefResolver, times(2)).resolve(Matchers.any(Collection.class));
+
+        RefGraphStatistics statistics = refGraphWalk.statistics();
+        assertThat(statistics.getNodes(), equalTo(ASSAY_COUNT + 2));
+        assertThat(statistics.getEdges(), equalTo(ASSAY_COUNT + 1));
+        assertThat(statistics.getMaxDepth(), equalTo(2));
+        assertThat(statistics.getCycles(), equalTo(0));
+        assertThat(statistics.getTruncatedNodes(), equalTo(0));
+    }
+
+    @Test
+    public void whenTargetIsAccessioned_thenAccessionIsFilledIn() {
+        RefGraphWalk refGraphWalk = new RefGraphWalk(mockRefResolver, 32);
+
+        refGraphWalk.walkFrom(assays);
+
+        assays.forEach(assay -> assertThat(assay.getStudyRef().getAccession(), equalTo(study.getAccession())));
+    }
+
+    @Test
+    public void whenGraphIsDeeperThanLimit_thenWalkIsTruncated() {
+        RefGraphWalk refGraphWalk = new RefGraphWalk(mockRefResolver, 1);
+
+        refGraphWalk.walkFrom(assays);
+
+        assertThat(refGraphWalk.statistics().getTruncatedNodes(), equalTo(1));
+    }
+
+    @Test
+    public void whenGraphHasCycles_thenBackEdgesAreCounted() {
+        Map<String, Set<String>> adjacency = new HashMap<>();
+        adjacency.put("a", new LinkedHashSet<>(Arrays.asList("b")));
+        adjacency.put("b", new LinkedHashSet<>(Arrays.asList("c")));
+        adjacency.put("c", new LinkedHashSet<>(Arrays.asList("a")));
+        adjacency.put("d", new LinkedHashSet<>(Arrays.asList("a", "d")));
+
+        assertThat(RefGraphWalk.countCycles(adjacency), equalTo(2));
+    }
+}
@@ -0,0 +1,161 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.DefaultDbRefResolver;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import uk.ac.ebi.subs.data.component.SampleRef;
+import uk.ac.ebi.subs.data.component.Team;
+import uk.ac.ebi.subs.repository.model.Sample;
+import uk.ac.ebi.subs.repository.model.StoredSubmittable;
+import uk.ac.ebi.subs.repository.model.Study;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class RefResolverTest {
+
+    private static final int DISTINCT_SAMPLE_COUNT = 10;
+
+    private RefResolver refResolver;
+
+    private MongoTemplate mockMongoTemplate;
+
+    private List<SampleRef> sampleRefs;
+
+    @Before
+    public void buildUp() {
+        mockMongoTemplate = Mockito.mock(MongoTemplate.class);
+
+        Mockito.when(mockMongoTemplate.getConverter()).thenReturn(new MappingMongoConverter(
+                new DefaultDbRefResolver(Mockito.mock(MongoDbFactory.class)), new MongoMappingContext()));
+
+        List<Class<? extends StoredSubmittable>> submittablesClassList = Arrays.asList(Sample.class, Study.class);
+
+        refResolver = new RefResolver(
+                mockMongoTemplate,
+                submittablesClassList,
+                new DispatcherBatchProperties(500),
+                new RefCacheProperties(100)
+        );
+
+        List<Sample> samples = IntStream.range(0, DISTINCT_SAMPLE_COUNT)
+                .mapToObj(i -> {
+                    Sample sample = new Sample();
+                    sample.setId("sample" + i);
+                    sample.setAccession("SAMEA" + i);
+                    return sample;
+                })
+                .collect(Collectors.toList());
+
+        Mockito.when(mockMongoTemplate.find(Matchers.any(Query.class), Matchers.eq(Sample.class))).thenReturn(samples);
+
+        // many refs pointing to the same few samples
+        sampleRefs = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            SampleRef sampleRef = new SampleRef();
+            sampleRef.setAccession("SAMEA" + (i % DISTINCT_SAMPLE_COUNT));
+            sampleRefs.add(sampleRef);
+        }
+    }
+
+    @Test
+    public void whenManyRefsToSameType_thenResolvedWithSingleQuery() {
+        Map<String, StoredSubmittable> resolved = refResolver.resolve(sampleRefs);
+
+        assertThat(resolved.size(), equalTo(DISTINCT_SAMPLE_COUNT));
+        sampleRefs.forEach(ref -> assertThat(resolved.get(RefResolver.refKey(ref)), notNullValue()));
+
+        verify(mockMongoTemplate, times(1)).find(Matchers.any(Query.class), Matchers.eq(Sample.class));
+    }
+
+    @Test
+    public void whenTargetsAreAccessioned_thenNextCycleIsServedFromCache() {
+        refResolver.resolve(sampleRefs);
+        Map<String, StoredSubmittable> resolved = refResolver.resolve(sampleRefs);
+
+        assertThat(resolved.size(), equalTo(DISTINCT_SAMPLE_COUNT));
+        verify(mockMongoTemplate, times(1)).find(Matchers.any(Query.class), Matchers.eq(Sample.class));
+    }
+
+    @Test
+    public void whenTargetsAreServedFromCache_thenChangesToThemDoNotReachTheCache() {
+        SampleRef sampleRef = sampleRefs.get(0);
+        String refKey = RefResolver.refKey(sampleRef);
+
+        StoredSubmittable firstTarget = refResolver.resolve(Collections.singletonList(sampleRef)).get(refKey);
+        firstTarget.setAlias("changed by the first dispatch");
+
+        StoredSubmittable secondTarget = refResolver.resolve(Collections.singletonList(sampleRef)).get(refKey);
+        secondTarget.setAlias("changed by the second dispatch");
+
+        StoredSubmittable thirdTarget = refResolver.resolve(Collections.singletonList(sampleRef)).get(refKey);
+
+        assertThat(thirdTarget, not(sameInstance(secondTarget)));
+        assertThat(thirdTarget.getAccession(), equalTo(sampleRef.getAccession()));
+        assertThat(thirdTarget.getAlias(), nullValue());
+    }
+
+    @Test
+    public void whenRefsAreByAlias_thenTheNewestTargetIsResolvedOnEveryCycle() {
+        Sample olderSample = sampleWithAlias("olderSample", "SAMEA100");
+        Sample newerSample = sampleWithAlias("newerSample", "SAMEA101");
+
+        Mockito.when(mockMongoTemplate.find(Matchers.any(Query.class), Matchers.eq(Sample.class)))
+                .thenReturn(Collections.singletonList(olderSample))
+                .thenReturn(Collections.singletonList(newerSample));
+
+        SampleRef sampleRef = new SampleRef();
+        sampleRef.setTeam("team1");
+        sampleRef.setAlias("alias1");
+        String refKey = RefResolver.refKey(sampleRef);
+
+        assertThat(refResolver.resolve(Collections.singletonList(sampleRef)).get(refKey).getId(), equalTo("olderSample"));
+        assertThat(refResolver.resolve(Collections.singletonList(sampleRef)).get(refKey).getId(), equalTo("newerSample"));
+    }
+
+    @Test
+    public void whenTargetsAreMissing_thenTheyAreLeftUnresolvedWithoutFurtherQueries() {
+        List<SampleRef> refs = new ArrayList<>(sampleRefs);
+        for (int i = 0; i < 100; i++) {
+            SampleRef missingRef = new SampleRef();
+            missingRef.setAccession("SAMEA-MISSING" + i);
+            refs.add(missingRef);
+        }
+
+        Map<String, StoredSubmittable> resolved = refResolver.resolve(refs);
+
+        assertThat(resolved.size(), equalTo(DISTINCT_SAMPLE_COUNT + 100));
+        assertThat(resolved.get(RefResolver.refKey(refs.get(refs.size() - 1))), nullValue());
+        verify(mockMongoTemplate, times(1)).find(Matchers.any(Query.class), Matchers.eq(Sample.class));
+    }
+
+    private Sample sampleWithAlias(String id, String accession) {
+        Sample sample = new Sample();
+        sample.setId(id);
+        sample.setAlias("alias1");
+        sample.setTeam(Team.build("team1"));
+        sample.setAccession(accession);
+        return sample;
+    }
+}
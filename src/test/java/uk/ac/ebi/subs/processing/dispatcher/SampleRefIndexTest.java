@@ -0,0 +1,79 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.subs.data.component.SampleRef;
+import uk.ac.ebi.subs.data.component.Team;
+import uk.ac.ebi.subs.data.submittable.Sample;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class SampleRefIndexTest {
+
+    private static final int SAMPLE_COUNT = 100000;
+
+    private SampleRefIndex sampleRefIndex;
+
+    private List<Sample> samples;
+
+    @Before
+    public void buildUp() {
+        samples = IntStream.range(0, SAMPLE_COUNT)
+                .mapToObj(i -> {
+                    Sample sample = new Sample();
+                    sample.setAlias("sample" + i);
+                    sample.setTeam(Team.build("testerTeam"));
+                    if (i % 2 == 0) {
+                        sample.setAccession("SAMEA" + i);
+                    }
+                    return sample;
+                })
+                .collect(Collectors.toList());
+
+        sampleRefIndex = new SampleRefIndex();
+        sampleRefIndex.addAll(samples);
+    }
+
+    @Test
+    public void whenRefHasAccession_thenMatchedByAccession() {
+        SampleRef sampleRef = new SampleRef();
+        sampleRef.setAccession("SAMEA42");
+
+        assertThat(sampleRefIndex.findMatch(sampleRef), equalTo(samples.get(42)));
+    }
+
+    @Test
+    public void whenRefHasTeamAndAlias_thenMatchedByTeamAndAlias() {
+        SampleRef sampleRef = new SampleRef();
+        sampleRef.setAlias("sample43");
+        sampleRef.setTeam("testerTeam");
+
+        assertThat(sampleRefIndex.findMatch(sampleRef), equalTo(samples.get(43)));
+    }
+
+    @Test
+    public void whenRefIsForAnotherTeam_thenNoMatch() {
+        SampleRef sampleRef = new SampleRef();
+        sampleRef.setAlias("sample43");
+        sampleRef.setTeam("otherTeam");
+
+        assertThat(sampleRefIndex.findMatch(sampleRef), nullValue());
+    }
+
+    @Test
+    public void whenMatchingRefsForEverySample_thenEachIsFound() {
+        for (Sample sample : samples) {
+            SampleRef sampleRef = new SampleRef();
+            sampleRef.setAlias(sample.getAlias());
+            sampleRef.setTeam(sample.getTeam().getName());
+
+            assertThat(sampleRefIndex.findMatch(sampleRef), equalTo(sample));
+        }
+    }
+}
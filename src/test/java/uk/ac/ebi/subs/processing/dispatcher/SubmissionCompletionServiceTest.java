@@ -1,19 +1,27 @@
 package uk.ac.ebi.subs.processing.dispatcher;
 
+import com.mongodb.WriteResult;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.Matchers;
 import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.test.context.junit4.SpringRunner;
 import uk.ac.ebi.subs.data.status.ProcessingStatusEnum;
 import uk.ac.ebi.subs.data.status.SubmissionStatusEnum;
+import uk.ac.ebi.subs.progressmonitor.SubmissionStatusCounter;
+import uk.ac.ebi.subs.progressmonitor.SubmissionStatusCounts;
 import uk.ac.ebi.subs.repository.model.Submission;
 import uk.ac.ebi.subs.repository.model.SubmissionStatus;
 import uk.ac.ebi.subs.repository.repos.SubmissionRepository;
 import uk.ac.ebi.subs.repository.repos.status.ProcessingStatusRepository;
 import uk.ac.ebi.subs.repository.repos.status.SubmissionStatusRepository;
 
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -24,6 +32,7 @@ public class SubmissionCompletionServiceTest {
     private SubmissionCompletionService submissionCompletionService;
 
     private ProcessingStatusRepository mockProcessingStatusRepository;
+    private MongoTemplate mockMongoTemplate;
     private SubmissionStatusRepository mockSubmissionStatusRepository;
     private SubmissionRepository mockSubmissionRepository;
 
@@ -42,11 +51,12 @@ public class SubmissionCompletionServiceTest {
         mockProcessingStatusRepository = Mockito.mock(ProcessingStatusRepository.class);
         mockSubmissionStatusRepository = Mockito.mock(SubmissionStatusRepository.class);
         mockSubmissionRepository = Mockito.mock(SubmissionRepository.class);
+        mockMongoTemplate = Mockito.mock(MongoTemplate.class);
 
         submissionCompletionService = new SubmissionCompletionService(
-                mockProcessingStatusRepository,
                 mockSubmissionStatusRepository,
-                mockSubmissionRepository
+                mockSubmissionRepository,
+                new SubmissionStatusCounter(mockMongoTemplate, mockProcessingStatusRepository)
         );
 
         statusSummary = new HashMap<>();
@@ -116,4 +126,29 @@ public class SubmissionCompletionServiceTest {
         Mockito.verify(mockSubmissionStatusRepository).save(submissionStatus);
         Assert.assertEquals(SubmissionStatusEnum.Completed.name(),submissionStatus.getStatus());
     }
+
+    @Test
+    public void whenCountsAreFinishedButProcessingStatusesAreNot_thenSubmissionIsNotMarked(){
+        SubmissionStatusCounts submissionStatusCounts = new SubmissionStatusCounts();
+        submissionStatusCounts.setSubmissionId(submission.getId());
+        submissionStatusCounts.getCounts().put(ProcessingStatusEnum.Completed.name(), 10L);
+        submissionStatusCounts.setVersion(4L);
+        submissionStatusCounts.setLastReconciledDate(new Date());
+
+        Mockito.when(mockMongoTemplate.findById(submission.getId(), SubmissionStatusCounts.class))
+                .thenReturn(submissionStatusCounts);
+        Mockito.when(mockMongoTemplate.updateFirst(
+                Matchers.any(Query.class), Matchers.any(Update.class), Matchers.eq(SubmissionStatusCounts.class)))
+                .thenReturn(new WriteResult(1, true, null));
+
+        statusSummary.put(ProcessingStatusEnum.Completed.name(),9);
+        statusSummary.put(ProcessingStatusEnum.Submitted.name(),1);
+        Mockito.when(mockProcessingStatusRepository.summariseSubmissionStatus(submission.getId()))
+                .thenReturn(statusSummary);
+
+        Assert.assertTrue(submissionCompletionService.allSubmittablesProcessingFinished(submission.getId()));
+        Assert.assertFalse(submissionCompletionService.markSubmissionWithFinishedStatus(submission.getId()));
+
+        Mockito.verify(mockSubmissionStatusRepository, Mockito.never()).save(Matchers.any(SubmissionStatus.class));
+    }
 }
@@ -0,0 +1,68 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.ebi.subs.processing.SubmissionEnvelope;
+import uk.ac.ebi.subs.repository.model.Project;
+import uk.ac.ebi.subs.repository.model.Sample;
+import uk.ac.ebi.subs.repository.model.Study;
+import uk.ac.ebi.subs.repository.model.Submission;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertThat;
+
+public class SubmissionEnvelopeBuilderTest {
+
+    private SubmissionEnvelopeStuffer submissionEnvelopeStuffer;
+
+    private Submission submission;
+
+    @Before
+    public void buildUp() {
+        submissionEnvelopeStuffer = new SubmissionEnvelopeStuffer();
+
+        submission = new Submission();
+        submission.setId("sub1");
+    }
+
+    @Test
+    public void whenSameSubmittablesAddedRepeatedly_thenEnvelopeHoldsEachOnce() {
+        Study study = new Study();
+        study.setId("study1");
+
+        Sample sample1 = sample("sample1");
+        Sample sample2 = sample("sample2");
+
+        SubmissionEnvelopeBuilder envelopeBuilder = submissionEnvelopeStuffer.builder(submission);
+
+        for (int i = 0; i < 100; i++) {
+            envelopeBuilder.add(study).addAll(Arrays.asList(sample1, sample2));
+        }
+
+        SubmissionEnvelope submissionEnvelope = envelopeBuilder.jwtToken("token").build();
+
+        assertThat(submissionEnvelope.getStudies(), hasSize(1));
+        assertThat(submissionEnvelope.getSamples(), hasSize(2));
+        assertThat(envelopeBuilder.size(), equalTo(3));
+        assertThat(submissionEnvelope.getJWTToken(), equalTo("token"));
+    }
+
+    @Test
+    public void whenProjectAdded_thenItIsSetOnTheEnvelope() {
+        Project project = new Project();
+        project.setId("project1");
+
+        SubmissionEnvelope submissionEnvelope = submissionEnvelopeStuffer.builder(submission).add(project).build();
+
+        assertThat(submissionEnvelope.getProject(), equalTo(project));
+    }
+
+    private Sample sample(String id) {
+        Sample sample = new Sample();
+        sample.setId(id);
+        return sample;
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import uk.ac.ebi.subs.CoreProcessingApp;
 import uk.ac.ebi.subs.data.component.Archive;
 import uk.ac.ebi.subs.data.component.Team;
+import uk.ac.ebi.subs.processing.SubmissionEnvelope;
 import uk.ac.ebi.subs.repository.model.Sample;
 import uk.ac.ebi.subs.repository.model.StoredSubmittable;
 import uk.ac.ebi.subs.repository.model.Study;
@@ -27,12 +28,15 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static uk.ac.ebi.subs.processing.utils.DataTypeBuilder.buildDataType;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @Category(MongoDBDependentTest.class)
-@SpringBootTest(classes = CoreProcessingApp.class)
+@SpringBootTest(classes = CoreProcessingApp.class, properties = "usi.submission-envelope.fetch.parallelism=4")
 public class SubmissionEnvelopeServiceTest {
 
     @Autowired
@@ -63,6 +67,17 @@ public class SubmissionEnvelopeServiceTest {
         assertThat(contents, containsInAnyOrder(study, sample));
     }
 
+    @Test
+    public void testFetchOneLoadsContentsConcurrently() {
+        SubmissionEnvelope submissionEnvelope = submissionEnvelopeService.fetchOne(submission.getId());
+
+        assertThat(submissionEnvelope.getStudies(), hasSize(1));
+        assertThat(submissionEnvelope.getStudies().get(0).getId(), equalTo(study.getId()));
+        assertThat(submissionEnvelope.getSamples(), hasSize(1));
+        assertThat(submissionEnvelope.getSamples().get(0).getId(), equalTo(sample.getId()));
+        assertThat(submissionEnvelope.getAssays(), hasSize(0));
+        assertThat(submissionEnvelope.getProject(), nullValue());
+    }
 
     private void clearDbs() {
         Stream.of(studyRepository, sampleRepository, submissionRepository, dataTypeRepository).forEach(repo -> repo.deleteAll());
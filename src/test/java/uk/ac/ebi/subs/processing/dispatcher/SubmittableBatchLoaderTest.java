@@ -0,0 +1,113 @@
+package uk.ac.ebi.subs.processing.dispatcher;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import uk.ac.ebi.subs.error.EntityNotFoundException;
+import uk.ac.ebi.subs.repository.model.Sample;
+import uk.ac.ebi.subs.repository.model.StoredSubmittable;
+import uk.ac.ebi.subs.repository.repos.submittables.SampleRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class SubmittableBatchLoaderTest {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int SAMPLE_COUNT = 1200;
+
+    private SubmittableBatchLoader submittableBatchLoader;
+
+    private SampleRepository mockSampleRepository;
+
+    private Map<String, Sample> samplesInDb;
+
+    @Before
+    public void buildUp() {
+        submittableBatchLoader = new SubmittableBatchLoader(
+                new DispatcherBatchProperties(BATCH_SIZE),
+                new DispatchMetrics(new MetricRegistry())
+        );
+
+        samplesInDb = new HashMap<>();
+        IntStream.range(0, SAMPLE_COUNT).forEach(i -> {
+            Sample sample = new Sample();
+            sample.setId("sample" + i);
+            samplesInDb.put(sample.getId(), sample);
+        });
+
+        mockSampleRepository = Mockito.mock(SampleRepository.class);
+        Mockito.when(mockSampleRepository.findAll(Matchers.any(Iterable.class))).thenAnswer(invocation -> {
+            Iterable<String> ids = (Iterable<String>) invocation.getArguments()[0];
+            return StreamSupport.stream(ids.spliterator(), false)
+                    .map(samplesInDb::get)
+                    .filter(sample -> sample != null)
+                    .collect(Collectors.toList());
+        });
+    }
+
+    @Test
+    public void whenLoadingManySubmittables_thenOneQueryPerPageInIdOrder() {
+        List<String> ids = new ArrayList<>(samplesInDb.keySet());
+        List<List<StoredSubmittable>> pages = new ArrayList<>();
+
+        submittableBatchLoader.loadPages(mockSampleRepository, ids, pages::add);
+
+        // 1200 ids in pages of 500: 3 round trips instead of 1200
+        assertThat(pages, hasSize(3));
+        assertThat(pages.get(0), hasSize(BATCH_SIZE));
+        assertThat(pages.get(2), hasSize(SAMPLE_COUNT - 2 * BATCH_SIZE));
+
+        List<String> loadedIds = pages.stream()
+                .flatMap(List::stream)
+                .map(StoredSubmittable::getId)
+                .collect(Collectors.toList());
+        assertThat(loadedIds, equalTo(ids));
+
+        verify(mockSampleRepository, times(3)).findAll(Matchers.any(Iterable.class));
+        verify(mockSampleRepository, never()).findOne(Matchers.anyString());
+    }
+
+    @Test
+    public void whenSubmittableIsMissing_thenEntityNotFoundExceptionIsThrownForItsPage() {
+        List<String> ids = new ArrayList<>(new ArrayList<>(samplesInDb.keySet()).subList(0, BATCH_SIZE + 1));
+        ids.add("not-in-the-db");
+        List<List<StoredSubmittable>> pages = new ArrayList<>();
+
+        try {
+            submittableBatchLoader.loadPages(mockSampleRepository, ids, pages::add);
+            fail("the missing submittable should have been reported");
+        } catch (EntityNotFoundException e) {
+            assertThat(e.getMessage(), containsString("not-in-the-db"));
+        }
+
+        // the complete first page was passed on, the page with the missing id was not
+        assertThat(pages, hasSize(1));
+    }
+
+    @Test
+    public void whenNoIds_thenNoQuery() {
+        Collection<String> noIds = new ArrayList<>();
+
+        submittableBatchLoader.loadPages(mockSampleRepository, noIds, page -> {});
+
+        verify(mockSampleRepository, never()).findAll(Matchers.any(Iterable.class));
+    }
+}
@@ -23,11 +23,14 @@ import uk.ac.ebi.subs.repository.repos.submittables.StudyRepository;
 import uk.ac.ebi.subs.util.MongoDBDependentTest;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Stream;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertThat;
 
@@ -76,6 +79,34 @@ public class UpdateSubmittablesStatusToSubmittedTest {
         }
     }
 
+    @Test
+    public void whenPublishIsOverdue_thenDispatchedStatusesAreSetBackToSubmitted() {
+        dispatcherService.updateSubmittablesStatusToSubmitted(Archive.BioSamples, submissionEnvelope);
+
+        List<String> revertedSubmissionIds = dispatcherService.revertOverdueDispatches(new Date(System.currentTimeMillis() + 60000));
+
+        assertThat(revertedSubmissionIds, contains(submission.getId()));
+        for (Study study : studies) {
+            ProcessingStatus processingStatus = processingStatusRepository.findOne(study.getProcessingStatus().getId());
+
+            ProcessingStatusEnum expectedStatus = "hold".equals(study.getTitle())
+                    ? ProcessingStatusEnum.Rejected
+                    : ProcessingStatusEnum.Submitted;
+
+            assertThat(processingStatus.getStatus(), equalTo(expectedStatus.name()));
+        }
+    }
+
+    @Test
+    public void whenEnvelopeIsPublished_thenDispatchedStatusesAreNotOverdue() {
+        dispatcherService.updateSubmittablesStatusToSubmitted(Archive.BioSamples, submissionEnvelope);
+        dispatcherService.markSubmittablesAsPublished(Archive.BioSamples, submissionEnvelope);
+
+        List<String> revertedSubmissionIds = dispatcherService.revertOverdueDispatches(new Date(System.currentTimeMillis() + 60000));
+
+        assertThat(revertedSubmissionIds, empty());
+    }
+
     @Before
     public void buildUp() {
         tearDown();
@@ -0,0 +1,175 @@
+package uk.ac.ebi.subs.processing.initialsubmissionprocessing;
+
+import com.mongodb.DBObject;
+import com.mongodb.WriteResult;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import uk.ac.ebi.subs.data.component.Archive;
+import uk.ac.ebi.subs.processing.dispatcher.SubmissionEnvelopeService;
+import uk.ac.ebi.subs.repository.model.DataType;
+import uk.ac.ebi.subs.repository.model.ProcessingStatus;
+import uk.ac.ebi.subs.repository.model.Sample;
+import uk.ac.ebi.subs.repository.model.StoredSubmittable;
+import uk.ac.ebi.subs.repository.model.Study;
+import uk.ac.ebi.subs.repository.repos.SubmissionRepository;
+import uk.ac.ebi.subs.repository.repos.status.ProcessingStatusRepository;
+import uk.ac.ebi.subs.repository.repos.status.SubmissionStatusRepository;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class SubmissionProcessingServiceTest {
+
+    private static final String SUBMISSION_ID = "sub1";
+
+    private SubmissionProcessingService submissionProcessingService;
+
+    private ProcessingStatusRepository mockProcessingStatusRepository;
+    private MongoTemplate mockMongoTemplate;
+
+    private DataType sampleType;
+    private DataType noArchiveType;
+
+    @Before
+    public void buildUp() {
+        mockProcessingStatusRepository = Mockito.mock(ProcessingStatusRepository.class);
+        mockMongoTemplate = Mockito.mock(MongoTemplate.class);
+
+        WriteResult writeResult = Mockito.mock(WriteResult.class);
+        Mockito.when(mockMongoTemplate.updateMulti(Matchers.any(Query.class), Matchers.any(Update.class), Matchers.eq(ProcessingStatus.class)))
+                .thenReturn(writeResult);
+
+        List<Class<? extends StoredSubmittable>> submittablesClassList = Arrays.asList(Sample.class, Study.class);
+
+        submissionProcessingService = new SubmissionProcessingService(
+                Mockito.mock(SubmissionEnvelopeService.class),
+                mockProcessingStatusRepository,
+                Mockito.mock(SubmissionStatusRepository.class),
+                Mockito.mock(SubmissionRepository.class),
+                mockMongoTemplate,
+                new ArchiveAssignmentProperties(true, 1000),
+                submittablesClassList
+        );
+
+        sampleType = dataType("samples", Archive.BioSamples);
+        noArchiveType = dataType("noArchive", null);
+    }
+
+    @Test
+    public void whenDataTypesHaveArchives_thenAssignedInBulkWithoutLoadingSubmittables() {
+        givenSummary(sampleType, "sample1", "sample2");
+        givenProcessingStatuses("sample1", "sample2");
+
+        submissionProcessingService.assignArchives(SUBMISSION_ID);
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        verify(mockMongoTemplate, times(1)).updateMulti(queryCaptor.capture(), updateCaptor.capture(), Matchers.eq(ProcessingStatus.class));
+
+        assertThat(inValues(queryCaptor.getValue(), "submittableId"), containsInAnyOrder("sample1", "sample2"));
+        assertThat(archiveSet(updateCaptor.getValue()), equalTo(Archive.BioSamples.name()));
+        verify(mockMongoTemplate, never()).find(Matchers.any(Query.class), Matchers.eq(Sample.class));
+    }
+
+    @Test
+    public void whenSubmittablesAreLeftOver_thenOnlyTheyAreLookedUp() {
+        givenSummary(sampleType, "sample1");
+        givenProcessingStatuses("sample1", "sample2");
+
+        Mockito.when(mockMongoTemplate.find(Matchers.any(Query.class), Matchers.eq(Sample.class)))
+                .thenReturn(Collections.singletonList(sample("sample2", sampleType)));
+
+        submissionProcessingService.assignArchives(SUBMISSION_ID);
+
+        ArgumentCaptor<Query> lookupCaptor = ArgumentCaptor.forClass(Query.class);
+        verify(mockMongoTemplate).find(lookupCaptor.capture(), Matchers.eq(Sample.class));
+        assertThat(inValues(lookupCaptor.getValue(), "_id"), containsInAnyOrder("sample2"));
+
+        ArgumentCaptor<Query> queryCaptor = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updateCaptor = ArgumentCaptor.forClass(Update.class);
+        verify(mockMongoTemplate, times(2)).updateMulti(queryCaptor.capture(), updateCaptor.capture(), Matchers.eq(ProcessingStatus.class));
+
+        assertThat(inValues(queryCaptor.getAllValues().get(0), "submittableId"), containsInAnyOrder("sample1"));
+        assertThat(inValues(queryCaptor.getAllValues().get(1), "submittableId"), containsInAnyOrder("sample2"));
+        assertThat(archiveSet(updateCaptor.getAllValues().get(1)), equalTo(Archive.BioSamples.name()));
+        verify(mockMongoTemplate, never()).find(Matchers.any(Query.class), Matchers.eq(Study.class));
+    }
+
+    @Test
+    public void whenDataTypeHasNoArchive_thenSubmittableIsSkipped() {
+        givenSummary(noArchiveType, "sample1");
+        givenProcessingStatuses("sample1");
+
+        Mockito.when(mockMongoTemplate.find(Matchers.any(Query.class), Matchers.eq(Sample.class)))
+                .thenReturn(Collections.singletonList(sample("sample1", noArchiveType)));
+
+        submissionProcessingService.assignArchives(SUBMISSION_ID);
+
+        verify(mockMongoTemplate, never()).updateMulti(Matchers.any(Query.class), Matchers.any(Update.class), Matchers.eq(ProcessingStatus.class));
+    }
+
+    private void givenSummary(DataType dataType, String... submittableIds) {
+        Map<DataType, Set<String>> summary = new HashMap<>();
+        summary.put(dataType, new HashSet<>(Arrays.asList(submittableIds)));
+
+        Mockito.when(mockProcessingStatusRepository.summariseDataTypesWithSubmittableIds(Matchers.eq(SUBMISSION_ID), Matchers.any()))
+                .thenReturn(summary);
+    }
+
+    private void givenProcessingStatuses(String... submittableIds) {
+        List<ProcessingStatus> processingStatuses = Arrays.stream(submittableIds)
+                .map(submittableId -> {
+                    ProcessingStatus processingStatus = new ProcessingStatus();
+                    processingStatus.setSubmittableId(submittableId);
+                    processingStatus.setSubmittableType(Sample.class.getSimpleName());
+                    return processingStatus;
+                })
+                .collect(Collectors.toList());
+
+        Mockito.when(mockMongoTemplate.find(Matchers.any(Query.class), Matchers.eq(ProcessingStatus.class)))
+                .thenReturn(processingStatuses);
+    }
+
+    private static DataType dataType(String id, Archive archive) {
+        DataType dataType = new DataType();
+        dataType.setId(id);
+        dataType.setArchive(archive);
+        return dataType;
+    }
+
+    private static Sample sample(String id, DataType dataType) {
+        Sample sample = new Sample();
+        sample.setId(id);
+        sample.setDataType(dataType);
+        return sample;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<String> inValues(Query query, String key) {
+        return (Collection<String>) ((DBObject) query.getQueryObject().get(key)).get("$in");
+    }
+
+    private static Object archiveSet(Update update) {
+        return ((DBObject) update.getUpdateObject().get("$set")).get("archive");
+    }
+}
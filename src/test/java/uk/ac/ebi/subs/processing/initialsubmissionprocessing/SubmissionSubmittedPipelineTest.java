@@ -0,0 +1,100 @@
+package uk.ac.ebi.subs.processing.initialsubmissionprocessing;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.springframework.amqp.rabbit.core.RabbitMessagingTemplate;
+import uk.ac.ebi.subs.apisupport.ApiSupportService;
+import uk.ac.ebi.subs.data.status.SubmissionStatusEnum;
+import uk.ac.ebi.subs.messaging.Exchanges;
+import uk.ac.ebi.subs.messaging.Topics;
+import uk.ac.ebi.subs.processing.SubmissionEnvelope;
+import uk.ac.ebi.subs.processing.dispatcher.DispatcherRabbitBridge;
+import uk.ac.ebi.subs.repository.model.ProcessingStatus;
+import uk.ac.ebi.subs.repository.model.Submission;
+import uk.ac.ebi.subs.repository.model.SubmissionStatus;
+import uk.ac.ebi.subs.repository.repos.SubmissionRepository;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class SubmissionSubmittedPipelineTest {
+
+    private static final String SUBMISSION_ID = "sub1";
+
+    private SubmissionSubmittedPipeline submissionSubmittedPipeline;
+
+    private RabbitMessagingTemplate mockRabbitMessagingTemplate;
+    private SubmissionProcessingService mockSubmissionProcessingService;
+    private ApiSupportService mockApiSupportService;
+    private DispatcherRabbitBridge mockDispatcherRabbitBridge;
+
+    private Submission submission;
+    private SubmissionEnvelope submissionEnvelope;
+    private List<ProcessingStatus> processingStatuses;
+
+    @Before
+    public void buildUp() {
+        mockRabbitMessagingTemplate = Mockito.mock(RabbitMessagingTemplate.class);
+        mockSubmissionProcessingService = Mockito.mock(SubmissionProcessingService.class);
+        mockApiSupportService = Mockito.mock(ApiSupportService.class);
+        mockDispatcherRabbitBridge = Mockito.mock(DispatcherRabbitBridge.class);
+        SubmissionRepository mockSubmissionRepository = Mockito.mock(SubmissionRepository.class);
+
+        submission = new Submission();
+        submission.setId(SUBMISSION_ID);
+        submission.setSubmissionStatus(new SubmissionStatus());
+        submission.getSubmissionStatus().setStatus(SubmissionStatusEnum.Submitted);
+
+        Mockito.when(mockSubmissionRepository.findOne(SUBMISSION_ID)).thenReturn(submission);
+
+        processingStatuses = Collections.singletonList(new ProcessingStatus());
+        Mockito.when(mockSubmissionProcessingService.processingStatusesOf(SUBMISSION_ID)).thenReturn(processingStatuses);
+
+        submissionEnvelope = new SubmissionEnvelope(submission);
+
+        submissionSubmittedPipeline = new SubmissionSubmittedPipeline(
+                mockRabbitMessagingTemplate,
+                mockSubmissionRepository,
+                mockSubmissionProcessingService,
+                mockApiSupportService,
+                mockDispatcherRabbitBridge
+        );
+    }
+
+    @Test
+    public void whenSubmitted_thenStagesRunInOrderBeforeUpdateIsSent() {
+        submissionSubmittedPipeline.onSubmissionSubmitted(submissionEnvelope);
+
+        InOrder inOrder = Mockito.inOrder(
+                mockSubmissionProcessingService, mockApiSupportService, mockDispatcherRabbitBridge, mockRabbitMessagingTemplate);
+
+        inOrder.verify(mockSubmissionProcessingService).setSubmissionStatusToProcessing(submission);
+        inOrder.verify(mockSubmissionProcessingService).processingStatusesOf(SUBMISSION_ID);
+        inOrder.verify(mockSubmissionProcessingService).assignArchives(SUBMISSION_ID, processingStatuses);
+        inOrder.verify(mockApiSupportService).markDraftContentsAsSubmitted(submission, processingStatuses);
+        inOrder.verify(mockDispatcherRabbitBridge).requestSupportingInformation(submissionEnvelope);
+        inOrder.verify(mockRabbitMessagingTemplate).convertAndSend(
+                Exchanges.SUBMISSIONS, Topics.EVENT_SUBMISSION_PROCESSING_UPDATED, submissionEnvelope);
+
+        verify(mockSubmissionProcessingService, times(1)).processingStatusesOf(SUBMISSION_ID);
+    }
+
+    @Test
+    public void whenStillInDraft_thenNothingIsDone() {
+        submission.getSubmissionStatus().setStatus(SubmissionStatusEnum.Draft);
+
+        submissionSubmittedPipeline.onSubmissionSubmitted(submissionEnvelope);
+
+        verifyZeroInteractions(mockSubmissionProcessingService, mockApiSupportService, mockDispatcherRabbitBridge);
+        verify(mockRabbitMessagingTemplate, never())
+                .convertAndSend(Matchers.anyString(), Matchers.anyString(), Matchers.any(Object.class));
+    }
+}
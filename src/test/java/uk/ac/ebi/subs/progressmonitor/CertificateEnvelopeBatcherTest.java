@@ -0,0 +1,127 @@
+package uk.ac.ebi.subs.progressmonitor;
+
+import com.rabbitmq.client.Channel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import uk.ac.ebi.subs.data.status.ProcessingStatusEnum;
+import uk.ac.ebi.subs.processing.ProcessingCertificateEnvelope;
+import uk.ac.ebi.subs.util.Helpers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class CertificateEnvelopeBatcherTest {
+
+    private static final int MAX_ENVELOPES = 3;
+
+    private CertificateEnvelopeBatcher certificateEnvelopeBatcher;
+    private Channel mockChannel;
+    private List<ProcessingCertificateEnvelope> applied;
+
+    @Before
+    public void buildUp() {
+        // a window long enough for batches to be closed by the size cap only
+        certificateEnvelopeBatcher = new CertificateEnvelopeBatcher(new CertificateBatchingProperties(60000, MAX_ENVELOPES, 1));
+        mockChannel = Mockito.mock(Channel.class);
+        applied = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @After
+    public void tearDown() {
+        certificateEnvelopeBatcher.shutdown();
+    }
+
+    @Test
+    public void whenBatchIsFull_thenCertificatesAreAppliedOnceAndAcknowledged() throws Exception {
+        for (int i = 0; i < MAX_ENVELOPES; i++) {
+            certificateEnvelopeBatcher.submit(envelope("item" + i), mockChannel, i, applied::add);
+        }
+
+        verify(mockChannel, timeout(5000)).basicAck(MAX_ENVELOPES - 1, false);
+
+        assertThat(applied.size(), equalTo(1));
+        assertThat(applied.get(0).getProcessingCertificates().size(), equalTo(MAX_ENVELOPES));
+        assertThat(certificateEnvelopeBatcher.pendingBatchCount(), equalTo(0));
+        for (int i = 0; i < MAX_ENVELOPES; i++) {
+            verify(mockChannel).basicAck(i, false);
+        }
+    }
+
+    @Test
+    public void whenBatchFails_thenMessagesAreRejected() throws Exception {
+        Consumer<ProcessingCertificateEnvelope> failingApply = envelope -> {
+            throw new IllegalStateException("test failure");
+        };
+
+        for (int i = 0; i < MAX_ENVELOPES; i++) {
+            certificateEnvelopeBatcher.submit(envelope("item" + i), mockChannel, i, failingApply);
+        }
+
+        for (int i = 0; i < MAX_ENVELOPES; i++) {
+            verify(mockChannel, timeout(5000)).basicNack(i, false, false);
+        }
+        verify(mockChannel, never()).basicAck(Mockito.anyLong(), Mockito.anyBoolean());
+    }
+
+    @Test
+    public void whenSeveralBatchesOfSameSubmissionAreFull_thenTheyAreAppliedOneAfterTheOther() throws Exception {
+        CertificateEnvelopeBatcher parallelBatcher =
+                new CertificateEnvelopeBatcher(new CertificateBatchingProperties(60000, MAX_ENVELOPES, 4));
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Consumer<ProcessingCertificateEnvelope> slowApply = envelope -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            applied.add(envelope);
+            running.decrementAndGet();
+        };
+
+        try {
+            for (int i = 0; i < MAX_ENVELOPES * 4; i++) {
+                parallelBatcher.submit(envelope("item" + i), mockChannel, i, slowApply);
+            }
+
+            verify(mockChannel, timeout(5000)).basicAck(MAX_ENVELOPES * 4 - 1, false);
+        } finally {
+            parallelBatcher.shutdown();
+        }
+
+        assertThat(maxRunning.get(), equalTo(1));
+        assertThat(applied.size(), equalTo(4));
+        for (int batch = 0; batch < 4; batch++) {
+            assertThat(applied.get(batch).getProcessingCertificates().get(0).getSubmittableId(),
+                    equalTo("item" + batch * MAX_ENVELOPES));
+        }
+    }
+
+    @Test
+    public void whenWindowHasNotClosed_thenBatchIsPending() throws Exception {
+        certificateEnvelopeBatcher.submit(envelope("item1"), mockChannel, 1, applied::add);
+
+        assertThat(applied.size(), equalTo(0));
+        assertThat(certificateEnvelopeBatcher.pendingBatchCount(), equalTo(1));
+        verify(mockChannel, never()).basicAck(Mockito.anyLong(), Mockito.anyBoolean());
+    }
+
+    private ProcessingCertificateEnvelope envelope(String submittableId) {
+        return Helpers.generateProcessingCertificateEnvelope(Collections.singletonList(
+                Helpers.generateProcessingCertificate(submittableId, ProcessingStatusEnum.Completed)
+        ));
+    }
+}
@@ -7,6 +7,7 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import uk.ac.ebi.subs.CoreProcessingApp;
 import uk.ac.ebi.subs.data.status.ProcessingStatusEnum;
@@ -17,7 +18,11 @@ import uk.ac.ebi.subs.repository.repos.status.ProcessingStatusRepository;
 import uk.ac.ebi.subs.util.Helpers;
 
 import java.util.Arrays;
+import java.util.Map;
 
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.junit.Assert.assertThat;
 
@@ -34,6 +39,12 @@ public class ProgressMonitorTest {
     @Autowired
     private ProgressMonitorService progressMonitorService;
 
+    @Autowired
+    private SubmissionStatusCounter submissionStatusCounter;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
     @Before
     public void setUp() throws Exception {
         ProcessingStatus ps = Helpers.generateProcessingStatus(submittableId, ProcessingStatusEnum.Processing);
@@ -56,8 +67,62 @@ public class ProgressMonitorTest {
         );
     }
 
+    @Test
+    public void whenCertificateForUnknownSubmittable_thenItIsSkipped() {
+        ProcessingCertificate known = Helpers.generateProcessingCertificate(submittableId, ProcessingStatusEnum.Completed);
+        ProcessingCertificate unknown = Helpers.generateProcessingCertificate("not-in-the-db", ProcessingStatusEnum.Completed);
+        ProcessingCertificateEnvelope pce = Helpers.generateProcessingCertificateEnvelope(Arrays.asList(unknown, known));
+
+        progressMonitorService.updateSubmittablesFromCertificates(pce);
+
+        assertThat(
+                processingStatusRepository.findBySubmittableId(submittableId).getStatus(), equalTo(ProcessingStatusEnum.Completed.name())
+        );
+        assertThat(processingStatusRepository.findBySubmittableId("not-in-the-db"), nullValue());
+    }
+
+    @Test
+    public void whenSeveralCertificatesForSameSubmittable_thenLastOneWins() {
+        ProcessingCertificate first = Helpers.generateProcessingCertificate(submittableId, ProcessingStatusEnum.Received);
+        ProcessingCertificate last = Helpers.generateProcessingCertificate(submittableId, ProcessingStatusEnum.Completed);
+        ProcessingCertificateEnvelope pce = Helpers.generateProcessingCertificateEnvelope(Arrays.asList(first, last));
+
+        progressMonitorService.updateSubmittablesFromCertificates(pce);
+
+        assertThat(
+                processingStatusRepository.findBySubmittableId(submittableId).getStatus(), equalTo(ProcessingStatusEnum.Completed.name())
+        );
+    }
+
+    @Test
+    public void whenStatusesChange_thenStatusCountsFollowTheUpdatedStatuses() {
+        ProcessingCertificateEnvelope pce = Helpers.generateProcessingCertificateEnvelope(Arrays.asList(
+                Helpers.generateProcessingCertificate("counted", ProcessingStatusEnum.Completed)));
+
+        ProcessingStatus ps = Helpers.generateProcessingStatus("counted", ProcessingStatusEnum.Processing);
+        ps.setSubmissionId(pce.getSubmissionId());
+        processingStatusRepository.insert(ps);
+
+        submissionStatusCounter.summariseSubmissionStatus(pce.getSubmissionId());
+
+        progressMonitorService.updateSubmittablesFromCertificates(pce);
+
+        Map<String, Integer> statusSummary = submissionStatusCounter.summariseSubmissionStatus(pce.getSubmissionId());
+        assertThat(statusSummary.get(ProcessingStatusEnum.Completed.name()), equalTo(1));
+        assertThat(statusSummary, not(hasKey(ProcessingStatusEnum.Processing.name())));
+    }
+
+    @Test(expected = NullSubmittableIdException.class)
+    public void whenCertificateHasNoSubmittableId_thenExceptionIsThrown() {
+        ProcessingCertificate pc = Helpers.generateProcessingCertificate(null, ProcessingStatusEnum.Completed);
+        ProcessingCertificateEnvelope pce = Helpers.generateProcessingCertificateEnvelope(Arrays.asList(pc));
+
+        progressMonitorService.updateSubmittablesFromCertificates(pce);
+    }
+
     @After
     public void tearDown() throws Exception {
         processingStatusRepository.deleteAll();
+        mongoTemplate.dropCollection(SubmissionStatusCounts.class);
     }
 }
@@ -0,0 +1,155 @@
+package uk.ac.ebi.subs.progressmonitor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.ac.ebi.subs.CoreProcessingApp;
+import uk.ac.ebi.subs.data.status.ProcessingStatusEnum;
+import uk.ac.ebi.subs.repository.model.ProcessingStatus;
+import uk.ac.ebi.subs.repository.repos.status.ProcessingStatusRepository;
+import uk.ac.ebi.subs.util.Helpers;
+import uk.ac.ebi.subs.util.MongoDBDependentTest;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@RunWith(SpringRunner.class)
+@Category(MongoDBDependentTest.class)
+@SpringBootTest(classes = CoreProcessingApp.class)
+public class SubmissionStatusCounterTest {
+
+    private static final String SUBMISSION_ID = "status-counter-submission";
+
+    @Autowired
+    private SubmissionStatusCounter submissionStatusCounter;
+
+    @Autowired
+    private ProcessingStatusRepository processingStatusRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Before
+    public void buildUp() {
+        tearDown();
+
+        processingStatusRepository.insert(Arrays.asList(
+                processingStatus("item1", ProcessingStatusEnum.Submitted),
+                processingStatus("item2", ProcessingStatusEnum.Submitted),
+                processingStatus("item3", ProcessingStatusEnum.Completed)
+        ));
+    }
+
+    @After
+    public void tearDown() {
+        processingStatusRepository.deleteAll();
+        mongoTemplate.dropCollection(SubmissionStatusCounts.class);
+    }
+
+    @Test
+    public void whenNoCountsYet_thenSeededFromProcessingStatuses() {
+        Map<String, Integer> statusSummary = submissionStatusCounter.summariseSubmissionStatus(SUBMISSION_ID);
+
+        assertThat(statusSummary.get(ProcessingStatusEnum.Submitted.name()), equalTo(2));
+        assertThat(statusSummary.get(ProcessingStatusEnum.Completed.name()), equalTo(1));
+        assertThat(mongoTemplate.findById(SUBMISSION_ID, SubmissionStatusCounts.class), notNullValue());
+    }
+
+    @Test
+    public void whenStatusesChange_thenCountsFollowWithoutRecounting() {
+        submissionStatusCounter.summariseSubmissionStatus(SUBMISSION_ID);
+
+        Map<String, Long> deltas = new HashMap<>();
+        SubmissionStatusCounter.addStatusChange(deltas, ProcessingStatusEnum.Submitted.name(), ProcessingStatusEnum.Completed.name());
+        SubmissionStatusCounter.addStatusChange(deltas, ProcessingStatusEnum.Submitted.name(), ProcessingStatusEnum.Completed.name());
+        submissionStatusCounter.countStatusWrites(SUBMISSION_ID, () -> deltas);
+
+        Map<String, Integer> statusSummary = submissionStatusCounter.summariseSubmissionStatus(SUBMISSION_ID);
+
+        assertThat(statusSummary, not(hasKey(ProcessingStatusEnum.Submitted.name())));
+        assertThat(statusSummary.get(ProcessingStatusEnum.Completed.name()), equalTo(3));
+    }
+
+    @Test
+    public void whenFirstChangeComesBeforeAnyRead_thenCountsAreSeeded() {
+        submissionStatusCounter.statusChanged(SUBMISSION_ID, ProcessingStatusEnum.Draft.name(), ProcessingStatusEnum.Submitted.name());
+
+        SubmissionStatusCounts submissionStatusCounts = mongoTemplate.findById(SUBMISSION_ID, SubmissionStatusCounts.class);
+
+        assertThat(submissionStatusCounts, notNullValue());
+        assertThat(submissionStatusCounts.getCounts().get(ProcessingStatusEnum.Submitted.name()), equalTo(2L));
+        assertThat(submissionStatusCounts.getCounts().get(ProcessingStatusEnum.Completed.name()), equalTo(1L));
+    }
+
+    @Test
+    public void whenCountsDrift_thenReconcileCorrectsThem() {
+        submissionStatusCounter.summariseSubmissionStatus(SUBMISSION_ID);
+        submissionStatusCounter.statusChanged(SUBMISSION_ID, ProcessingStatusEnum.Submitted.name(), ProcessingStatusEnum.Error.name());
+
+        submissionStatusCounter.reconcile(SUBMISSION_ID);
+
+        Map<String, Integer> statusSummary = submissionStatusCounter.summariseSubmissionStatus(SUBMISSION_ID);
+        assertThat(statusSummary.get(ProcessingStatusEnum.Submitted.name()), equalTo(2));
+        assertThat(statusSummary, not(hasKey(ProcessingStatusEnum.Error.name())));
+    }
+
+    @Test
+    public void whenReconciledWhileAWriteIsPending_thenTheWriteIsNotCountedTwice() {
+        submissionStatusCounter.summariseSubmissionStatus(SUBMISSION_ID);
+
+        submissionStatusCounter.countStatusWrites(SUBMISSION_ID, () -> {
+            mongoTemplate.updateFirst(
+                    query(where("submittableId").is("item1")),
+                    Update.update("status", ProcessingStatusEnum.Error.name()),
+                    ProcessingStatus.class
+            );
+
+            submissionStatusCounter.reconcile(SUBMISSION_ID);
+
+            Map<String, Long> deltas = new HashMap<>();
+            SubmissionStatusCounter.addStatusChange(deltas, ProcessingStatusEnum.Submitted.name(), ProcessingStatusEnum.Error.name());
+            return deltas;
+        });
+
+        Map<String, Integer> statusSummary = submissionStatusCounter.summariseSubmissionStatus(SUBMISSION_ID);
+        assertThat(statusSummary.get(ProcessingStatusEnum.Submitted.name()), equalTo(1));
+        assertThat(statusSummary.get(ProcessingStatusEnum.Error.name()), equalTo(1));
+        assertThat(statusSummary.get(ProcessingStatusEnum.Completed.name()), equalTo(1));
+    }
+
+    @Test
+    public void whenWriteIsLeftPending_thenItIsReleasedOnceStale() {
+        submissionStatusCounter.summariseSubmissionStatus(SUBMISSION_ID);
+        mongoTemplate.updateFirst(
+                query(where("_id").is(SUBMISSION_ID)),
+                new Update().inc("pendingWrites", 1).set("lastWriteDate", new Date(0)),
+                SubmissionStatusCounts.class
+        );
+
+        assertThat(submissionStatusCounter.releaseStaleWrites(SUBMISSION_ID, new Date()), equalTo(true));
+        assertThat(mongoTemplate.findById(SUBMISSION_ID, SubmissionStatusCounts.class).getPendingWrites(), equalTo(0L));
+    }
+
+    private ProcessingStatus processingStatus(String submittableId, ProcessingStatusEnum status) {
+        ProcessingStatus processingStatus = Helpers.generateProcessingStatus(submittableId, status);
+        processingStatus.setSubmissionId(SUBMISSION_ID);
+        return processingStatus;
+    }
+}
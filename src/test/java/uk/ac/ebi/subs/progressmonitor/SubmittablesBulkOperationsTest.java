@@ -0,0 +1,93 @@
+package uk.ac.ebi.subs.progressmonitor;
+
+import com.mongodb.BulkWriteResult;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import uk.ac.ebi.subs.data.status.ProcessingStatusEnum;
+import uk.ac.ebi.subs.processing.ProcessingCertificate;
+import uk.ac.ebi.subs.processing.ProcessingCertificateEnvelope;
+import uk.ac.ebi.subs.repository.model.Assay;
+import uk.ac.ebi.subs.repository.model.Sample;
+import uk.ac.ebi.subs.repository.model.StoredSubmittable;
+import uk.ac.ebi.subs.repository.model.Study;
+import uk.ac.ebi.subs.util.Helpers;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class SubmittablesBulkOperationsTest {
+
+    private SubmittablesBulkOperations submittablesBulkOperations;
+
+    private MongoTemplate mockMongoTemplate;
+    private BulkOperations mockBulkOperations;
+
+    @Before
+    public void buildUp() {
+        mockMongoTemplate = Mockito.mock(MongoTemplate.class);
+        mockBulkOperations = Mockito.mock(BulkOperations.class);
+
+        Mockito.when(mockMongoTemplate.bulkOps(Matchers.any(BulkOperations.BulkMode.class), Matchers.any(Class.class)))
+                .thenReturn(mockBulkOperations);
+        Mockito.when(mockBulkOperations.execute()).thenReturn(Mockito.mock(BulkWriteResult.class));
+
+        List<Class<? extends StoredSubmittable>> submittablesClassList = Arrays.asList(Sample.class, Study.class, Assay.class);
+        submittablesBulkOperations = new SubmittablesBulkOperations(submittablesClassList, mockMongoTemplate);
+    }
+
+    @Test
+    public void whenTypesAreKnown_thenOnlyTheirCollectionsAreUpdated() {
+        ProcessingCertificateEnvelope envelope = Helpers.generateProcessingCertificateEnvelope(Arrays.asList(
+                Helpers.generateProcessingCertificate("sample1", ProcessingStatusEnum.Completed),
+                Helpers.generateProcessingCertificate("sample2", ProcessingStatusEnum.Completed)
+        ));
+
+        Map<String, String> submittableTypesById = new HashMap<>();
+        submittableTypesById.put("sample1", Sample.class.getSimpleName());
+        submittableTypesById.put("sample2", Sample.class.getSimpleName());
+
+        submittablesBulkOperations.applyProcessingCertificates(envelope, submittableTypesById);
+
+        verify(mockMongoTemplate, times(1)).bulkOps(BulkOperations.BulkMode.UNORDERED, Sample.class);
+        verify(mockMongoTemplate, never()).bulkOps(BulkOperations.BulkMode.UNORDERED, Study.class);
+        verify(mockMongoTemplate, never()).bulkOps(BulkOperations.BulkMode.UNORDERED, Assay.class);
+        verify(mockBulkOperations, times(2)).updateOne(Matchers.any(Query.class), Matchers.any(Update.class));
+    }
+
+    @Test
+    public void whenTypeIsUnknown_thenEveryCollectionIsUpdated() {
+        ProcessingCertificateEnvelope envelope = Helpers.generateProcessingCertificateEnvelope(Arrays.asList(
+                Helpers.generateProcessingCertificate("sample1", ProcessingStatusEnum.Completed)
+        ));
+
+        submittablesBulkOperations.applyProcessingCertificates(envelope, new HashMap<>());
+
+        verify(mockMongoTemplate, times(1)).bulkOps(BulkOperations.BulkMode.UNORDERED, Sample.class);
+        verify(mockMongoTemplate, times(1)).bulkOps(BulkOperations.BulkMode.UNORDERED, Study.class);
+        verify(mockMongoTemplate, times(1)).bulkOps(BulkOperations.BulkMode.UNORDERED, Assay.class);
+    }
+
+    @Test
+    public void whenNoCertificateHasAnAccession_thenNothingIsWritten() {
+        ProcessingCertificate certificate = Helpers.generateProcessingCertificate("sample1", ProcessingStatusEnum.Error);
+        certificate.setAccession(null);
+        ProcessingCertificateEnvelope envelope = Helpers.generateProcessingCertificateEnvelope(Arrays.asList(certificate));
+
+        submittablesBulkOperations.applyProcessingCertificates(envelope);
+
+        verify(mockMongoTemplate, never()).bulkOps(Matchers.any(BulkOperations.BulkMode.class), Matchers.any(Class.class));
+        verify(mockMongoTemplate, never()).find(Matchers.any(Query.class), Matchers.any(Class.class));
+    }
+}